@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+# Measure startup time and resident memory of one service as a plain jar, with the CDS
+# archive (mvn -Pcds package) and as a native image (mvn -Pnative native:compile).
+# Variants that have not been built are skipped. Start Kafka first (docker-compose up -d)
+# so every variant does the same work; the service's port must be free.
+#
+# Usage: ./measure-startup.sh stock-consumer|stock-producer [runs]
+
+set -u
+
+MODULE=${1:?usage: $0 stock-consumer|stock-producer [runs]}
+RUNS=${2:-5}
+TARGET="$MODULE/target"
+JAR="$TARGET/$MODULE-0.0.1-SNAPSHOT.jar"
+
+# Start a command, wait for Spring Boot's "Started ... in N seconds" line, then print
+# "<seconds> <rss KB>" (RSS read two seconds after startup) and stop the process
+measure() {
+    local log
+    log=$(mktemp)
+    "$@" > "$log" 2>&1 &
+    local pid=$!
+
+    local started=""
+    for _ in $(seq 1 600); do
+        started=$(grep -oE 'Started [A-Za-z]+ in [0-9.]+ seconds' "$log" | grep -oE '[0-9.]+' | head -1)
+        if [ -n "$started" ] || ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        sleep 0.2
+    done
+
+    sleep 2
+    local rss
+    rss=$(ps -o rss= -p "$pid" 2>/dev/null | tr -d ' ')
+    kill "$pid" 2>/dev/null
+    wait "$pid" 2>/dev/null
+    rm -f "$log"
+    echo "${started:-failed} ${rss:-0}"
+}
+
+run_variant() {
+    local name=$1
+    shift
+    local times=() rss=()
+    for _ in $(seq 1 "$RUNS"); do
+        read -r t r < <(measure "$@")
+        times+=("$t")
+        rss+=("$r")
+    done
+    local median_time median_rss
+    median_time=$(printf '%s\n' "${times[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    median_rss=$(printf '%s\n' "${rss[@]}" | sort -n | awk '{a[NR]=$1} END {print a[int((NR+1)/2)]}')
+    printf '%-8s startup %6ss   RSS %6d MB   (runs: %s)\n' \
+        "$name" "$median_time" "$((median_rss / 1024))" "${times[*]}"
+}
+
+[ -f "$JAR" ] && run_variant "jar" java -jar "$JAR"
+[ -f "$TARGET/cds/application.jsa" ] && \
+    run_variant "cds" java -XX:SharedArchiveFile="$TARGET/cds/application.jsa" -jar "$TARGET/cds/application.jar"
+[ -x "$TARGET/$MODULE" ] && run_variant "native" "$TARGET/$MODULE"
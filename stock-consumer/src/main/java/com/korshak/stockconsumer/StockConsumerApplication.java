@@ -1,7 +1,9 @@
 package com.korshak.stockconsumer;
 
+import com.korshak.stockconsumer.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -10,6 +12,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  * Provides WebSocket and SSE endpoints for real-time stock data streaming
  */
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 @EnableKafka
 @EnableScheduling
 public class StockConsumerApplication {
@@ -0,0 +1,34 @@
+package com.korshak.stockconsumer.config;
+
+import com.korshak.stockconsumer.model.AlertRule;
+import com.korshak.stockconsumer.model.PriceAlert;
+import com.korshak.stockconsumer.model.StockPrice;
+import com.korshak.stockconsumer.service.MoversLeaderboard;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reflection hints for the GraalVM native image (mvn -Pnative native:compile).
+ * Controllers mostly return Map bodies, and STOMP/SSE payloads are serialized by hand,
+ * so AOT cannot infer which types Jackson binds; the Kafka client also instantiates its
+ * configured deserializer classes reflectively.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // JSON payloads: Kafka values, REST/SSE bodies and STOMP messages
+        bindingHints.registerReflectionHints(hints.reflection(),
+                StockPrice.class, PriceAlert.class, AlertRule.class, MoversLeaderboard.Mover.class);
+
+        // Kafka consumer (de)serializers, configured by class
+        hints.reflection().registerType(StringDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(JsonDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,171 @@
+package com.korshak.stockconsumer.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * STOMP subscription registry indexed by stock symbol, installed into the simple broker.
+ *
+ * Subscriptions under the stock updates topic are indexed by symbol:
+ *   /topic/stock-updates                  - every symbol
+ *   /topic/stock-updates/AAPL             - one symbol
+ *   /topic/stock-updates/AAPL,MSFT,GOOGL  - several symbols in one subscription
+ * A tick published to /topic/stock-updates/{symbol} is matched against the all-symbols
+ * subscribers and that symbol's subscribers only, so dispatch cost follows the number of
+ * interested subscribers. Other destinations are matched exactly (no patterns).
+ */
+public class SymbolSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    private final String stockTopic;
+    private final String stockTopicPrefix;
+
+    // Symbol -> subscriptions for that symbol
+    private final Map<String, Set<Subscription>> symbolIndex = new ConcurrentHashMap<>();
+
+    // Subscriptions to every symbol
+    private final Set<Subscription> allSymbolSubscriptions = ConcurrentHashMap.newKeySet();
+
+    // Non-stock destinations: exact destination -> subscriptions
+    private final Map<String, Set<Subscription>> destinationIndex = new ConcurrentHashMap<>();
+
+    // Session -> subscription id -> subscription (for unsubscribe / disconnect)
+    private final Map<String, Map<String, Subscription>> sessions = new ConcurrentHashMap<>();
+
+    public SymbolSubscriptionRegistry(String stockTopic) {
+        this.stockTopic = stockTopic;
+        this.stockTopicPrefix = stockTopic + "/";
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        Subscription subscription = new Subscription(sessionId, subscriptionId, destination, parseSymbols(destination));
+        Subscription previous = sessions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+                .put(subscriptionId, subscription);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(subscription);
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, Subscription> sessionSubscriptions = sessions.get(sessionId);
+        if (sessionSubscriptions == null) {
+            return;
+        }
+        Subscription subscription = sessionSubscriptions.remove(subscriptionId);
+        if (subscription != null) {
+            unindex(subscription);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, Subscription> sessionSubscriptions = sessions.remove(sessionId);
+        if (sessionSubscriptions != null) {
+            sessionSubscriptions.values().forEach(this::unindex);
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        MultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+
+        if (destination.equals(stockTopic)) {
+            addAll(result, allSymbolSubscriptions);
+        } else if (destination.startsWith(stockTopicPrefix)) {
+            addAll(result, allSymbolSubscriptions);
+            String symbol = destination.substring(stockTopicPrefix.length()).toUpperCase();
+            Set<Subscription> symbolSubscriptions = symbolIndex.get(symbol);
+            if (symbolSubscriptions != null) {
+                addAll(result, symbolSubscriptions);
+            }
+        } else {
+            Set<Subscription> exact = destinationIndex.get(destination);
+            if (exact != null) {
+                addAll(result, exact);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Subscription counts for monitoring
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Integer> bySymbol = new TreeMap<>();
+        symbolIndex.forEach((symbol, subscriptions) -> bySymbol.put(symbol, subscriptions.size()));
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("subscriptions", sessions.values().stream().mapToInt(Map::size).sum());
+        stats.put("allSymbolSubscriptions", allSymbolSubscriptions.size());
+        stats.put("symbolSubscriptions", bySymbol);
+        return stats;
+    }
+
+    private void index(Subscription subscription) {
+        if (subscription.symbols() == null) {
+            destinationIndex.computeIfAbsent(subscription.destination(), k -> ConcurrentHashMap.newKeySet())
+                    .add(subscription);
+        } else if (subscription.symbols().isEmpty()) {
+            allSymbolSubscriptions.add(subscription);
+        } else {
+            for (String symbol : subscription.symbols()) {
+                symbolIndex.computeIfAbsent(symbol, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+            }
+        }
+    }
+
+    private void unindex(Subscription subscription) {
+        if (subscription.symbols() == null) {
+            removeFrom(destinationIndex, subscription.destination(), subscription);
+        } else if (subscription.symbols().isEmpty()) {
+            allSymbolSubscriptions.remove(subscription);
+        } else {
+            for (String symbol : subscription.symbols()) {
+                removeFrom(symbolIndex, symbol, subscription);
+            }
+        }
+    }
+
+    private static void removeFrom(Map<String, Set<Subscription>> index, String key, Subscription subscription) {
+        index.computeIfPresent(key, (k, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    private static void addAll(MultiValueMap<String, String> result, Set<Subscription> subscriptions) {
+        for (Subscription subscription : subscriptions) {
+            result.add(subscription.sessionId(), subscription.subscriptionId());
+        }
+    }
+
+    /**
+     * Symbols of a stock topic destination: empty for all symbols, null for other destinations
+     */
+    private Set<String> parseSymbols(String destination) {
+        if (destination.equals(stockTopic)) {
+            return Collections.emptySet();
+        }
+        if (!destination.startsWith(stockTopicPrefix)) {
+            return null;
+        }
+
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String symbol : destination.substring(stockTopicPrefix.length()).split(",")) {
+            if (!symbol.isBlank()) {
+                symbols.add(symbol.trim().toUpperCase());
+            }
+        }
+        return symbols;
+    }
+
+    private record Subscription(String sessionId, String subscriptionId, String destination, Set<String> symbols) {}
+}
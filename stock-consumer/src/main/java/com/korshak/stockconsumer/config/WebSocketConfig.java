@@ -1,7 +1,11 @@
 package com.korshak.stockconsumer.config;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -17,10 +21,35 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Value("${cors.allowed-origins}")
     private String[] allowedOrigins;
 
+    @Bean
+    public SymbolSubscriptionRegistry symbolSubscriptionRegistry(
+            @Value("${websocket.topic.stock-updates}") String stockUpdatesTopic) {
+        return new SymbolSubscriptionRegistry(stockUpdatesTopic);
+    }
+
+    /**
+     * Replace the simple broker's default registry (which matches every message against
+     * every subscription) with the symbol-indexed registry
+     */
+    @Bean
+    public static BeanPostProcessor symbolSubscriptionRegistryInstaller(
+            ObjectProvider<SymbolSubscriptionRegistry> symbolSubscriptionRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler brokerHandler) {
+                    brokerHandler.setSubscriptionRegistry(symbolSubscriptionRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable simple message broker with destinations prefixed with "/topic"
-        config.enableSimpleBroker("/topic");
+        // Enable simple message broker with destinations prefixed with "/topic", and "/queue" for
+        // per-session replies (subscriptions are matched by SymbolSubscriptionRegistry, see above)
+        config.enableSimpleBroker("/topic", "/queue");
         // Set application destination prefix
         config.setApplicationDestinationPrefixes("/app");
     }
@@ -0,0 +1,196 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korshak.stockconsumer.model.AlertRule;
+import com.korshak.stockconsumer.model.PriceAlert;
+import com.korshak.stockconsumer.service.AlertPublisher;
+import com.korshak.stockconsumer.service.PriceAlertService;
+import com.korshak.stockconsumer.service.SymbolIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * REST API for price alert rules and SSE stream of fired alerts
+ */
+@RestController
+@RequestMapping("/api/alerts")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class AlertController implements AlertPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertController.class);
+    private static final long SSE_TIMEOUT = 300_000L; // 5 minutes
+
+    @Autowired
+    private PriceAlertService priceAlertService;
+
+    @Autowired
+    private SymbolIndex symbolIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${stock.stream.max-pending-per-client}")
+    private int maxPendingPerClient;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final CopyOnWriteArrayList<SseConnection> connections = new CopyOnWriteArrayList<>();
+
+    // Drains each client's queued alerts off the Kafka listener thread
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        sendExecutor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "alerts-sse"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Register an alert rule
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createRule(@RequestBody AlertRule rule) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("rule", priceAlertService.addRule(rule));
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        }
+    }
+
+    /**
+     * Get active alert rules, optionally for one symbol
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getRules(@RequestParam(required = false) String symbol) {
+        List<AlertRule> rules = priceAlertService.getRules(symbol != null ? symbol.toUpperCase() : null);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("rules", rules);
+        response.put("count", rules.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get an alert rule
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<AlertRule> getRule(@PathVariable String id) {
+        AlertRule rule = priceAlertService.getRule(id);
+        if (rule == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rule);
+    }
+
+    /**
+     * Delete an alert rule
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable String id) {
+        if (!priceAlertService.removeRule(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Alert engine statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new HashMap<>(priceAlertService.getStatistics());
+        stats.put("streamConnections", connections.size());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * SSE endpoint for fired alerts, for all symbols or a watchlist (?symbols=AAPL,MSFT)
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(@RequestParam(required = false) String symbols) {
+        SymbolFilter symbolFilter = null;
+        if (symbols != null && !symbols.isBlank()) {
+            symbolFilter = SymbolFilter.of(SseSubscriptionRegistry.parseSymbols(symbols), symbolIndex);
+        }
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        SseConnection connection = new SseConnection(emitter, symbolFilter, sendExecutor, maxPendingPerClient,
+                failed -> {
+                    connections.remove(failed);
+                    failed.getEmitter().complete();
+                });
+
+        connections.add(connection);
+        logger.info("New alert SSE client connected. Active connections: {}", connections.size());
+
+        connection.send("info", "Connected to alert stream");
+
+        emitter.onCompletion(() -> closeConnection(connection));
+        emitter.onTimeout(() -> closeConnection(connection));
+        emitter.onError((throwable) -> closeConnection(connection));
+
+        return emitter;
+    }
+
+    /**
+     * Push fired alerts to interested SSE clients
+     * This method will be called by StockConsumerService when rules fire
+     */
+    @Override
+    public void publishAlerts(List<PriceAlert> alerts) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        for (PriceAlert alert : alerts) {
+            int symbolId = symbolIndex.find(alert.getSymbol());
+            String json = toJson(alert);
+            for (SseConnection connection : connections) {
+                if (connection.wants(symbolId, alert.getSymbol())) {
+                    connection.send("price-alert", json);
+                }
+            }
+        }
+    }
+
+    private void closeConnection(SseConnection connection) {
+        connection.close();
+        connections.remove(connection);
+        logger.info("Alert SSE client disconnected. Active connections: {}", connections.size());
+    }
+
+    private String toJson(PriceAlert alert) {
+        try {
+            return objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JSON serialization error", e);
+        }
+    }
+}
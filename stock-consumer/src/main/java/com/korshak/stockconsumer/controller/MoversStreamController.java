@@ -0,0 +1,220 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korshak.stockconsumer.service.MoverWindow;
+import com.korshak.stockconsumer.service.MoversLeaderboard;
+import com.korshak.stockconsumer.service.StockDataService;
+import com.korshak.stockconsumer.service.SymbolIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SSE stream of the top movers leaderboard.
+ * Clients asking for the same (window, ranking, top N) share one feed. Off the Kafka listener,
+ * every stock.stream.movers.publish-interval-ms and only if ticks arrived since the last check,
+ * each feed's leaderboard is read and pushed when the membership or order of the top N
+ * gainers or losers changed (compared as an ordered array of symbol ids).
+ */
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class MoversStreamController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoversStreamController.class);
+    private static final long SSE_TIMEOUT = 300_000L; // 5 minutes
+    private static final int MAX_TOP = 100;
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private SymbolIndex symbolIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${stock.stream.max-pending-per-client}")
+    private int maxPendingPerClient;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Feed key (window:ranking:top) -> feed
+    private final Map<String, MoversFeed> feeds = new ConcurrentHashMap<>();
+
+    // Data version the feeds were last checked at
+    private long checkedVersion = -1;
+
+    // Writes movers events, so a slow client never holds up the scheduler thread
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        sendExecutor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "movers-sse"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * SSE endpoint for top movers (pushes when the ranking changes)
+     */
+    @GetMapping(value = "/movers", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMovers(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "session") String window,
+            @RequestParam(defaultValue = "percent") String by) {
+        MoversFeed feed = feedFor(top, window, by);
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        SseConnection connection = new SseConnection(emitter, null, sendExecutor, maxPendingPerClient,
+                failed -> feed.connections.remove(failed));
+
+        feed.connections.add(connection);
+        logger.info("New movers SSE client connected for {}. Active connections: {}", feed.key, feed.connections.size());
+
+        // Send the current leaderboard immediately
+        connection.send("movers", toJson(feed.snapshot(feed.top(true), feed.top(false))));
+
+        emitter.onCompletion(() -> closeConnection(feed, connection));
+        emitter.onTimeout(() -> closeConnection(feed, connection));
+        emitter.onError((throwable) -> closeConnection(feed, connection));
+
+        return emitter;
+    }
+
+    /**
+     * Push changed leaderboards to their subscribers, if any tick arrived (or a stale entry
+     * was evicted) since the last check
+     */
+    @Scheduled(fixedDelayString = "${stock.stream.movers.publish-interval-ms}")
+    public void publishChanges() {
+        stockDataService.evictStaleMovers();
+        long version = stockDataService.getDataVersion();
+        if (version == checkedVersion) {
+            return;
+        }
+        checkedVersion = version;
+
+        for (MoversFeed feed : feeds.values()) {
+            if (feed.connections.isEmpty()) {
+                continue;
+            }
+            List<MoversLeaderboard.Mover> gainers = feed.top(true);
+            List<MoversLeaderboard.Mover> losers = feed.top(false);
+            int[] ranking = ranking(gainers, losers);
+            if (Arrays.equals(ranking, feed.lastRanking)) {
+                continue;
+            }
+            feed.lastRanking = ranking;
+
+            String json = toJson(feed.snapshot(gainers, losers));
+            for (SseConnection connection : feed.connections) {
+                connection.send("movers", json);
+            }
+        }
+    }
+
+    private MoversFeed feedFor(int top, String window, String by) {
+        if (top < 1 || top > MAX_TOP) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "top must be between 1 and " + MAX_TOP);
+        }
+        if (!by.equals("percent") && !by.equals("change")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "by must be percent or change");
+        }
+        MoverWindow moverWindow;
+        try {
+            moverWindow = MoverWindow.fromParam(window);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        String key = moverWindow.getParam() + ":" + by + ":" + top;
+        return feeds.computeIfAbsent(key, k -> new MoversFeed(k, moverWindow, by.equals("percent"), top));
+    }
+
+    private void closeConnection(MoversFeed feed, SseConnection connection) {
+        connection.close();
+        feed.connections.remove(connection);
+        logger.info("Movers SSE client disconnected from {}. Active connections: {}", feed.key, feed.connections.size());
+    }
+
+    /**
+     * Symbol ids of the gainers then the losers, in rank order, separated by -1
+     */
+    private int[] ranking(List<MoversLeaderboard.Mover> gainers, List<MoversLeaderboard.Mover> losers) {
+        int[] ranking = new int[gainers.size() + 1 + losers.size()];
+        int i = 0;
+        for (MoversLeaderboard.Mover mover : gainers) {
+            ranking[i++] = symbolIndex.find(mover.symbol());
+        }
+        ranking[i++] = -1;
+        for (MoversLeaderboard.Mover mover : losers) {
+            ranking[i++] = symbolIndex.find(mover.symbol());
+        }
+        return ranking;
+    }
+
+    private String toJson(Map<String, Object> snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JSON serialization error", e);
+        }
+    }
+
+    /**
+     * Subscribers of one leaderboard view and the last ranking they were sent
+     */
+    private class MoversFeed {
+        private final String key;
+        private final MoverWindow window;
+        private final boolean byPercent;
+        private final int top;
+        private final CopyOnWriteArrayList<SseConnection> connections = new CopyOnWriteArrayList<>();
+        private int[] lastRanking; // only touched by publishChanges
+
+        MoversFeed(String key, MoverWindow window, boolean byPercent, int top) {
+            this.key = key;
+            this.window = window;
+            this.byPercent = byPercent;
+            this.top = top;
+        }
+
+        List<MoversLeaderboard.Mover> top(boolean gainers) {
+            return stockDataService.getTopMovers(window, byPercent, gainers, top);
+        }
+
+        Map<String, Object> snapshot(List<MoversLeaderboard.Mover> gainers, List<MoversLeaderboard.Mover> losers) {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("window", window.getParam());
+            snapshot.put("by", byPercent ? "percent" : "change");
+            snapshot.put("top", top);
+            snapshot.put("gainers", gainers);
+            snapshot.put("losers", losers);
+            snapshot.put("timestamp", Instant.now());
+            return snapshot;
+        }
+    }
+}
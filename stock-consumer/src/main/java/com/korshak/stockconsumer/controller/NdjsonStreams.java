@@ -0,0 +1,64 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.korshak.stockconsumer.model.StockPrice;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Newline-delimited JSON (NDJSON) responses written while records are read, so a large
+ * history result never exists as a list or as one JSON array in memory
+ */
+final class NdjsonStreams {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int FLUSH_EVERY = 256; // records between flushes to the client
+
+    /**
+     * Source of records that pushes each one to the given sink, in order
+     */
+    @FunctionalInterface
+    interface StockPriceSource {
+        void forEach(Consumer<StockPrice> sink);
+    }
+
+    private NdjsonStreams() {}
+
+    static ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, StockPriceSource source) {
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            try (SequenceWriter writer = objectMapper.writerFor(StockPrice.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(generator)) {
+                int[] written = new int[1];
+                source.forEach(stockPrice -> {
+                    try {
+                        writer.write(stockPrice);
+                        // First record goes out immediately, then in batches
+                        if (++written[0] % FLUSH_EVERY == 1) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeRaw('\n');
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+}
@@ -0,0 +1,342 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korshak.stockconsumer.model.StockPrice;
+import com.korshak.stockconsumer.service.StockDataService;
+import com.korshak.stockconsumer.service.StockStreamPublisher;
+import com.korshak.stockconsumer.service.SymbolIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Reactive Server-Sent Events (SSE) Controller for real-time stock price streaming
+ * Reactive mode (stock.stream.mode=reactive): every connection is a subscriber of one
+ * multicast sink, so no emitter or thread is held per client. Each tick is serialized
+ * once and shared; a slow client only drops its own oldest buffered events.
+ */
+@RestController
+@RequestMapping("/api/stream")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+@ConditionalOnProperty(name = "stock.stream.mode", havingValue = "reactive")
+public class ReactiveStockStreamController implements StockStreamPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveStockStreamController.class);
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SymbolIndex symbolIndex;
+
+    @Value("${stock.stream.reactive.buffer-size}")
+    private int subscriberBufferSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Best-effort multicast: delivery to one subscriber never waits for another
+    private final Sinks.Many<StockEvent> sink = Sinks.many().multicast().directBestEffort();
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger allStocksConnections = new AtomicInteger();
+    private final Map<String, Integer> symbolConnections = new ConcurrentHashMap<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // Events held in subscriber buffers, not yet handed to the response writers
+    private final AtomicLong pendingEvents = new AtomicLong();
+
+    /**
+     * SSE endpoint for all stock price updates, or for a watchlist of symbols
+     * (?symbols=AAPL,MSFT,GOOGL) over a single connection
+     * A reconnecting client (Last-Event-ID header or ?lastEventId=) gets the ticks it missed
+     */
+    @GetMapping(value = "/stocks", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamAllStocks(
+            @RequestParam(required = false) String symbols,
+            @RequestHeader(value = StockStreamController.LAST_EVENT_ID_HEADER, required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        Long resumeAfter = StockStreamController.parseLastEventId(
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        if (symbols != null && !symbols.isBlank()) {
+            return streamWatchlist(SseSubscriptionRegistry.parseSymbols(symbols), resumeAfter);
+        }
+
+        return openStream(null, event -> true, "Connected to stock price stream. Waiting for data...", resumeAfter)
+                .doOnSubscribe(subscription -> {
+                    totalConnections.incrementAndGet();
+                    logger.info("New reactive SSE client connected for all stocks. Active connections: {}",
+                            allStocksConnections.incrementAndGet());
+                })
+                .doFinally(signal -> {
+                    totalConnections.decrementAndGet();
+                    logger.info("Reactive SSE client disconnected from all stocks ({}). Active connections: {}",
+                            signal, allStocksConnections.decrementAndGet());
+                });
+    }
+
+    /**
+     * SSE endpoint for specific symbol updates
+     */
+    @GetMapping(value = "/stocks/{symbol}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamSymbol(
+            @PathVariable String symbol,
+            @RequestHeader(value = StockStreamController.LAST_EVENT_ID_HEADER, required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        String upperSymbol = symbol.toUpperCase();
+        Long resumeAfter = StockStreamController.parseLastEventId(
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+
+        return openStream(Set.of(upperSymbol), event -> event.symbol().equals(upperSymbol),
+                        "Connected to " + upperSymbol + " price stream. Waiting for data...", resumeAfter)
+                .doOnSubscribe(subscription -> {
+                    totalConnections.incrementAndGet();
+                    logger.info("New reactive SSE client connected for symbol {}. Active connections: {}",
+                            upperSymbol, connect(upperSymbol));
+                })
+                .doFinally(signal -> {
+                    totalConnections.decrementAndGet();
+                    logger.info("Reactive SSE client disconnected from {} ({}). Active connections: {}",
+                            upperSymbol, signal, disconnect(upperSymbol));
+                });
+    }
+
+    private Flux<ServerSentEvent<String>> streamWatchlist(Set<String> symbols, Long resumeAfter) {
+        String description = String.join(",", symbols);
+        SymbolFilter symbolFilter = SymbolFilter.of(symbols, symbolIndex);
+
+        return openStream(symbols, event -> symbolFilter.matches(event.symbolId(), event.symbol()),
+                        "Connected to " + description + " price stream. Waiting for data...", resumeAfter)
+                .doOnSubscribe(subscription -> {
+                    totalConnections.incrementAndGet();
+                    symbols.forEach(this::connect);
+                    logger.info("New reactive SSE client connected for {}", description);
+                })
+                .doFinally(signal -> {
+                    totalConnections.decrementAndGet();
+                    symbols.forEach(this::disconnect);
+                    logger.info("Reactive SSE client disconnected from {} ({})", description, signal);
+                });
+    }
+
+    /**
+     * Initial events followed by live ones. The initial events are the ticks missed since
+     * resumeAfter when the replay buffer still holds them, otherwise current prices for the
+     * symbols (null for all symbols) tagged with the latest sequence. Built at subscribe time
+     * under the broadcast lock, so the live part continues exactly where they stop.
+     */
+    private Flux<ServerSentEvent<String>> openStream(Set<String> symbols, Predicate<StockEvent> filter,
+                                                     String waitingMessage, Long resumeAfter) {
+        return Flux.defer(() -> {
+            List<ServerSentEvent<String>> initial = new ArrayList<>();
+            long lastSequence;
+            synchronized (this) {
+                lastSequence = stockDataService.getLastSequence();
+                List<StockDataService.SequencedTick> missed = resumeAfter != null
+                        ? stockDataService.getTicksSince(resumeAfter, subscriberBufferSize)
+                        : null;
+
+                if (missed != null) {
+                    for (StockDataService.SequencedTick tick : missed) {
+                        StockEvent event = toStockEvent(tick.stockPrice(), tick.sequence());
+                        if (filter.test(event)) {
+                            initial.add(event.event());
+                        }
+                    }
+                    logger.info("Resuming reactive SSE client after event {}: {} missed ticks",
+                            resumeAfter, missed.size());
+                } else if (symbols == null) {
+                    stockDataService.forEachCurrentPrice(price -> initial.add(
+                            toEvent(price.toJson(objectMapper.getFactory()), lastSequence)));
+                } else {
+                    for (String symbol : symbols) {
+                        StockPrice price = stockDataService.getCurrentPrice(symbol);
+                        if (price != null) {
+                            initial.add(toEvent(price, lastSequence));
+                        }
+                    }
+                }
+            }
+            if (initial.isEmpty() && resumeAfter == null) {
+                initial.add(infoEvent(waitingMessage));
+            }
+
+            return Flux.fromIterable(initial).concatWith(liveEvents(filter, lastSequence));
+        });
+    }
+
+    /**
+     * Get SSE connection statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("allStocksConnections", allStocksConnections.get());
+
+        stats.put("symbolConnections", new HashMap<>(symbolConnections));
+
+        stats.put("totalConnections", totalConnections.get());
+        stats.put("mode", "reactive");
+        stats.put("subscriberBufferSize", subscriberBufferSize);
+        stats.put("droppedEvents", droppedEvents.get());
+        stats.put("pendingEvents", pendingEvents.get());
+        stats.putAll(ThreadModeStats.collect(virtualThreads, totalConnections.get()));
+
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Broadcast stock price to all relevant SSE clients
+     * Serialized so the sink only ever sees one emitting thread
+     */
+    @Override
+    public synchronized void broadcastStockPrice(StockPrice stockPrice, long sequence) {
+        StockEvent event;
+        try {
+            event = toStockEvent(stockPrice, sequence);
+        } catch (IllegalStateException e) {
+            logger.error("Error serializing stock price to JSON", e);
+            return;
+        }
+
+        Sinks.EmitResult result = sink.tryEmitNext(event);
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            logger.warn("Failed to emit stock price for {}: {}", stockPrice.getSymbol(), result);
+        }
+    }
+
+    /**
+     * Events buffered for subscribers (bounded per subscriber, oldest dropped) and not yet
+     * handed to their response writers
+     */
+    @Override
+    public long getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * Live events for one subscriber after the given sequence: bounded per-subscriber buffer
+     * (oldest dropped on overflow) and writes moved off the Kafka listener thread.
+     * Ticks broadcast between building the initial events and subscribing to the sink are
+     * taken from the replay buffer when the first live event arrives.
+     */
+    private Flux<ServerSentEvent<String>> liveEvents(Predicate<StockEvent> filter, long afterSequence) {
+        AtomicLong firstSeen = new AtomicLong(-1);
+        AtomicLong queued = new AtomicLong(); // this subscriber's share of pendingEvents
+        return sink.asFlux()
+                .filter(event -> event.sequence() > afterSequence && filter.test(event))
+                .concatMapIterable(event -> {
+                    if (!firstSeen.compareAndSet(-1, event.sequence()) || event.sequence() == afterSequence + 1) {
+                        return List.of(event);
+                    }
+                    List<StockEvent> events = new ArrayList<>();
+                    List<StockDataService.SequencedTick> gap =
+                            stockDataService.getTicksSince(afterSequence, subscriberBufferSize);
+                    if (gap != null) {
+                        for (StockDataService.SequencedTick tick : gap) {
+                            if (tick.sequence() >= event.sequence()) {
+                                break;
+                            }
+                            StockEvent missed = toStockEvent(tick.stockPrice(), tick.sequence());
+                            if (filter.test(missed)) {
+                                events.add(missed);
+                            }
+                        }
+                    }
+                    events.add(event);
+                    return events;
+                })
+                .doOnNext(event -> {
+                    queued.incrementAndGet();
+                    pendingEvents.incrementAndGet();
+                })
+                .onBackpressureBuffer(subscriberBufferSize,
+                        dropped -> {
+                            droppedEvents.incrementAndGet();
+                            release(queued);
+                        },
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(event -> release(queued))
+                .doFinally(signal -> pendingEvents.addAndGet(-queued.getAndSet(0)))
+                .map(StockEvent::event);
+    }
+
+    /**
+     * Count one of the subscriber's queued events as delivered or dropped; a no-op once the
+     * subscriber has finished and released everything it held
+     */
+    private void release(AtomicLong queued) {
+        if (queued.getAndUpdate(count -> count > 0 ? count - 1 : 0) > 0) {
+            pendingEvents.decrementAndGet();
+        }
+    }
+
+    /**
+     * Count a connection for the symbol; returns the symbol's connections
+     */
+    private int connect(String symbol) {
+        return symbolConnections.merge(symbol, 1, Integer::sum);
+    }
+
+    /**
+     * Uncount a connection for the symbol, dropping symbols without connections
+     */
+    private int disconnect(String symbol) {
+        Integer left = symbolConnections.computeIfPresent(symbol, (k, count) -> count > 1 ? count - 1 : null);
+        return left != null ? left : 0;
+    }
+
+    private StockEvent toStockEvent(StockPrice stockPrice, long sequence) {
+        String symbol = stockPrice.getSymbol();
+        return new StockEvent(symbol, symbolIndex.find(symbol), sequence, toEvent(stockPrice, sequence));
+    }
+
+    private ServerSentEvent<String> toEvent(StockPrice stockPrice, long sequence) {
+        try {
+            return toEvent(objectMapper.writeValueAsString(stockPrice), sequence);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JSON serialization error", e);
+        }
+    }
+
+    private ServerSentEvent<String> toEvent(String json, long sequence) {
+        return ServerSentEvent.<String>builder()
+                .id(String.valueOf(sequence))
+                .event("stock-price")
+                .data(json)
+                .build();
+    }
+
+    private ServerSentEvent<String> infoEvent(String message) {
+        return ServerSentEvent.<String>builder()
+                .event("info")
+                .data(message)
+                .build();
+    }
+
+    private record StockEvent(String symbol, int symbolId, long sequence, ServerSentEvent<String> event) {}
+}
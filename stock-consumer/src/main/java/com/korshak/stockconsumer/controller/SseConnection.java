@@ -0,0 +1,166 @@
+package com.korshak.stockconsumer.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One SSE client connection with an ordered outbound queue.
+ * Events are queued by the broadcaster and written by a single drain task at a time on
+ * the send executor, so writes never interleave and per-client order is kept. With an
+ * inline executor the caller writes directly (platform-thread mode); with a virtual-thread
+ * executor a slow client blocks only its own virtual thread.
+ */
+public class SseConnection {
+
+    private final SseEmitter emitter;
+    private final SymbolFilter symbols;
+    private final Executor sendExecutor;
+    private final int maxPending;
+    private final Consumer<SseConnection> onFailure;
+
+    private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+    private volatile long resumedThrough = Long.MIN_VALUE;
+
+    /**
+     * @param symbols the subscribed symbols, or null for all symbols
+     * @param maxPending queued events after which the client is considered stuck and dropped
+     */
+    SseConnection(SseEmitter emitter, SymbolFilter symbols, Executor sendExecutor, int maxPending,
+                         Consumer<SseConnection> onFailure) {
+        this.emitter = emitter;
+        this.symbols = symbols;
+        this.sendExecutor = sendExecutor;
+        this.maxPending = maxPending;
+        this.onFailure = onFailure;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Subscribed symbols, or null when subscribed to all symbols
+     */
+    SymbolFilter getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Whether this client wants ticks for the symbol (with its id, or -1)
+     */
+    public boolean wants(int symbolId, String symbol) {
+        return symbols == null || symbols.matches(symbolId, symbol);
+    }
+
+    /**
+     * Queue an event for this client
+     */
+    public void send(String eventName, String data) {
+        enqueue(new Event(eventName, data, null));
+    }
+
+    /**
+     * Queue a tick event with its sequence number as the SSE id; ticks already covered by
+     * the initial replay or snapshot are skipped
+     */
+    public void send(String eventName, String data, long sequence) {
+        if (sequence <= resumedThrough) {
+            return;
+        }
+        enqueue(new Event(eventName, data, Long.toString(sequence)));
+    }
+
+    /**
+     * Mark ticks up to this sequence as already sent
+     */
+    public void resumedThrough(long sequence) {
+        this.resumedThrough = sequence;
+    }
+
+    private void enqueue(Event event) {
+        if (closed) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > maxPending) {
+            // Client is not reading; drop it rather than buffer without bound
+            fail();
+            return;
+        }
+        pending.add(event);
+        scheduleDrain();
+    }
+
+    /**
+     * Number of events queued but not yet written
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stop sending; queued events are discarded
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.clear();
+        pendingCount.set(0);
+    }
+
+    private void fail() {
+        if (closed) {
+            return;
+        }
+        close();
+        onFailure.accept(this);
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            sendExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Event event;
+            while (!closed && (event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                    .name(event.name())
+                    .data(event.data());
+                if (event.id() != null) {
+                    builder.id(event.id());
+                }
+                emitter.send(builder);
+            }
+        } catch (IOException | IllegalStateException e) {
+            fail();
+        } finally {
+            draining.set(false);
+        }
+
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!closed && !pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private record Event(String name, String data, String id) {}
+}
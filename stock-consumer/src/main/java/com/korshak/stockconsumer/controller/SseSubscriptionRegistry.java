@@ -0,0 +1,175 @@
+package com.korshak.stockconsumer.controller;
+
+import com.korshak.stockconsumer.service.SymbolIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Routing table for SSE connections.
+ * All-symbol connections are kept in one set; symbol connections are kept in per-symbol
+ * sets stored in an array indexed by symbol id. Subscribe and unsubscribe are O(symbols
+ * of the connection) with no copying, and a tick only visits its symbol's subscribers.
+ * Subscribed symbols without an id yet (no tick so far) are routed by name until the
+ * connection closes; they are never added to the SymbolIndex.
+ */
+class SseSubscriptionRegistry {
+
+    private static final Pattern SYMBOL_PATTERN = Pattern.compile("[A-Z0-9.\\-]{1,16}");
+
+    private final SymbolIndex symbolIndex;
+
+    private final Set<SseConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<SseConnection> allSymbolConnections = ConcurrentHashMap.newKeySet();
+
+    // Symbol id -> connections subscribed to that symbol (grown under lock, read lock-free)
+    private volatile Set<SseConnection>[] symbolConnections = newSlots(64);
+
+    // Symbol name -> connections subscribed to it before it had an id; empty keys are removed
+    private final Map<String, Set<SseConnection>> pendingConnections = new ConcurrentHashMap<>();
+
+    SseSubscriptionRegistry(SymbolIndex symbolIndex) {
+        this.symbolIndex = symbolIndex;
+    }
+
+    void register(SseConnection connection) {
+        if (!connections.add(connection)) {
+            return;
+        }
+        SymbolFilter symbols = connection.getSymbols();
+        if (symbols == null) {
+            allSymbolConnections.add(connection);
+            return;
+        }
+        BitSet ids = symbols.getIds();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            slot(id).add(connection);
+        }
+        for (String symbol : symbols.getPending()) {
+            pendingConnections.compute(symbol, (k, pending) -> {
+                Set<SseConnection> result = pending != null ? pending : ConcurrentHashMap.newKeySet();
+                result.add(connection);
+                return result;
+            });
+        }
+    }
+
+    void unregister(SseConnection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        SymbolFilter symbols = connection.getSymbols();
+        if (symbols == null) {
+            allSymbolConnections.remove(connection);
+            return;
+        }
+        Set<SseConnection>[] slots = symbolConnections;
+        BitSet ids = symbols.getIds();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (id < slots.length && slots[id] != null) {
+                slots[id].remove(connection);
+            }
+        }
+        for (String symbol : symbols.getPending()) {
+            pendingConnections.computeIfPresent(symbol, (k, pending) -> {
+                pending.remove(connection);
+                return pending.isEmpty() ? null : pending;
+            });
+        }
+    }
+
+    /**
+     * Visit every connection that should receive a tick for the symbol
+     */
+    void forEachSubscriber(String symbol, Consumer<SseConnection> action) {
+        allSymbolConnections.forEach(action);
+
+        int id = symbolIndex.find(symbol);
+        Set<SseConnection>[] slots = symbolConnections;
+        if (id >= 0 && id < slots.length && slots[id] != null) {
+            slots[id].forEach(action);
+        }
+
+        if (!pendingConnections.isEmpty()) {
+            Set<SseConnection> pending = pendingConnections.get(symbol);
+            if (pending != null) {
+                pending.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * Visit every registered connection
+     */
+    void forEachConnection(Consumer<SseConnection> action) {
+        connections.forEach(action);
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    int allSymbolsSize() {
+        return allSymbolConnections.size();
+    }
+
+    Map<String, Integer> countsBySymbol() {
+        Map<String, Integer> counts = new HashMap<>();
+        Set<SseConnection>[] slots = symbolConnections;
+        for (int id = 0; id < slots.length; id++) {
+            if (slots[id] != null && !slots[id].isEmpty()) {
+                counts.put(symbolIndex.symbolOf(id), slots[id].size());
+            }
+        }
+        pendingConnections.forEach((symbol, pending) -> counts.merge(symbol, pending.size(), Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Parse a comma separated watchlist (?symbols=AAPL,MSFT) into upper-case symbols
+     */
+    static Set<String> parseSymbols(String symbols) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String symbol : symbols.split(",")) {
+            String upperSymbol = symbol.trim().toUpperCase();
+            if (upperSymbol.isEmpty()) {
+                continue;
+            }
+            if (!SYMBOL_PATTERN.matcher(upperSymbol).matches()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid symbol: " + symbol);
+            }
+            result.add(upperSymbol);
+        }
+        if (result.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No symbols given");
+        }
+        return result;
+    }
+
+    private Set<SseConnection> slot(int id) {
+        Set<SseConnection>[] slots = symbolConnections;
+        if (id < slots.length && slots[id] != null) {
+            return slots[id];
+        }
+        synchronized (this) {
+            slots = symbolConnections;
+            if (id >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(slots.length * 2, id + 1));
+            }
+            if (slots[id] == null) {
+                slots[id] = ConcurrentHashMap.newKeySet();
+            }
+            symbolConnections = slots;
+            return slots[id];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<SseConnection>[] newSlots(int size) {
+        return (Set<SseConnection>[]) new Set<?>[size];
+    }
+}
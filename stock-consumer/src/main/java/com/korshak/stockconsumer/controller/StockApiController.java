@@ -1,13 +1,25 @@
 package com.korshak.stockconsumer.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korshak.stockconsumer.config.SymbolSubscriptionRegistry;
+import com.korshak.stockconsumer.history.Downsampler;
 import com.korshak.stockconsumer.model.StockPrice;
+import com.korshak.stockconsumer.service.BackpressureController;
+import com.korshak.stockconsumer.service.CorrelationService;
+import com.korshak.stockconsumer.service.MoverWindow;
+import com.korshak.stockconsumer.service.KafkaHistoryCache;
 import com.korshak.stockconsumer.service.KafkaHistoryService;
 import com.korshak.stockconsumer.service.StockDataService;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -25,6 +37,42 @@ public class StockApiController {
     @Autowired
     private KafkaHistoryService kafkaHistoryService;
 
+    @Autowired
+    private KafkaHistoryCache kafkaHistoryCache;
+
+    @Autowired
+    private SymbolSubscriptionRegistry symbolSubscriptionRegistry;
+
+    @Autowired
+    private BackpressureController backpressureController;
+
+    @Autowired
+    private CorrelationService correlationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Pre-serialized snapshot responses, rebuilt at most once per data version
+    private VersionedResponseCache currentPricesResponse;
+    private VersionedResponseCache symbolsResponse;
+    private VersionedResponseCache statisticsResponse;
+
+    @PostConstruct
+    public void init() {
+        currentPricesResponse = new VersionedResponseCache("current", out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                stockDataService.writeCurrentPricesJson(generator);
+            }
+        });
+        symbolsResponse = new VersionedResponseCache("symbols", objectMapper,
+                () -> stockDataService.getAvailableSymbols());
+        statisticsResponse = new VersionedResponseCache("stats", objectMapper, () -> {
+            Map<String, Object> stats = stockDataService.getStatistics();
+            stats.put("kafkaMessageCount", kafkaHistoryService.getCachedMessageCount());
+            return stats;
+        });
+    }
+
     /**
      * Health check endpoint
      */
@@ -33,7 +81,7 @@ public class StockApiController {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "UP");
         response.put("service", "stock-consumer");
-        response.put("timestamp", LocalDateTime.now());
+        response.put("timestamp", Instant.now());
         response.putAll(stockDataService.getStatistics());
         
         // Add Kafka message count
@@ -47,16 +95,20 @@ public class StockApiController {
      * Get all available symbols
      */
     @GetMapping("/symbols")
-    public ResponseEntity<Set<String>> getSymbols() {
-        return ResponseEntity.ok(stockDataService.getAvailableSymbols());
+    public ResponseEntity<byte[]> getSymbols(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return symbolsResponse.respond(stockDataService.getSymbolsVersion(), ifNoneMatch, acceptEncoding);
     }
 
     /**
      * Get current price for all symbols
      */
     @GetMapping("/current")
-    public ResponseEntity<Map<String, StockPrice>> getCurrentPrices() {
-        return ResponseEntity.ok(stockDataService.getAllCurrentPrices());
+    public ResponseEntity<byte[]> getCurrentPrices(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return currentPricesResponse.respond(stockDataService.getDataVersion(), ifNoneMatch, acceptEncoding);
     }
 
     /**
@@ -72,15 +124,95 @@ public class StockApiController {
         }
     }
 
+    /**
+     * Get top gainers and losers over a window (session, 1m, 5m), ranked by percent or absolute change
+     */
+    @GetMapping("/movers")
+    public ResponseEntity<Map<String, Object>> getMovers(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "session") String window,
+            @RequestParam(defaultValue = "percent") String by) {
+        if (top < 1 || (!by.equals("percent") && !by.equals("change"))) {
+            return ResponseEntity.badRequest().build();
+        }
+        MoverWindow moverWindow;
+        try {
+            moverWindow = MoverWindow.fromParam(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean byPercent = by.equals("percent");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("window", moverWindow.getParam());
+        response.put("by", by);
+        response.put("top", top);
+        response.put("gainers", stockDataService.getTopMovers(moverWindow, byPercent, true, top));
+        response.put("losers", stockDataService.getTopMovers(moverWindow, byPercent, false, top));
+        response.put("timestamp", Instant.now());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get the rolling correlation and covariance matrices of returns for a set of symbols
+     * (?symbols=AAPL,MSFT; all symbols when omitted) over a window such as 30s, 5m or 1h
+     */
+    @GetMapping("/correlation")
+    public ResponseEntity<Map<String, Object>> getCorrelation(
+            @RequestParam(required = false) String symbols,
+            @RequestParam(required = false) String window) {
+        int windowSamples;
+        try {
+            windowSamples = correlationService.windowSamples(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        Set<String> requested = symbols == null || symbols.isBlank()
+                ? null
+                : SseSubscriptionRegistry.parseSymbols(symbols);
+
+        CorrelationService.CorrelationMatrix matrix = correlationService.getCorrelation(requested, windowSamples);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("symbols", matrix.symbols());
+        response.put("windowSamples", windowSamples);
+        response.put("sampleIntervalMs", correlationService.getSampleIntervalMillis());
+        response.put("samples", matrix.samples());
+        response.put("correlation", matrix.correlation());
+        response.put("covariance", matrix.covariance());
+        response.put("timestamp", Instant.now());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get historical data for specific symbol (from in-memory storage)
+     * With maxPoints, the series is downsampled for charting (mode: lttb or minmax)
      */
     @GetMapping("/history/{symbol}")
     public ResponseEntity<List<StockPrice>> getHistory(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = "lttb") String mode) {
+        if (maxPoints == null) {
+            return ResponseEntity.ok(stockDataService.getRecentHistory(symbol.toUpperCase(), limit));
+        }
+        Downsampler.Mode downsampleMode = downsampleMode(mode, maxPoints);
+        if (downsampleMode == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(
+                stockDataService.getRecentHistory(symbol.toUpperCase(), limit, maxPoints, downsampleMode));
+    }
+
+    /**
+     * Stream historical data for specific symbol as NDJSON (?format=ndjson)
+     */
+    @GetMapping(value = "/history/{symbol}", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamHistory(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "100") int limit) {
-        List<StockPrice> history = stockDataService.getRecentHistory(symbol.toUpperCase(), limit);
-        return ResponseEntity.ok(history);
+        return NdjsonStreams.stream(objectMapper,
+                sink -> stockDataService.forEachRecent(symbol.toUpperCase(), limit, sink));
     }
 
     /**
@@ -91,30 +223,79 @@ public class StockApiController {
     public ResponseEntity<List<StockPrice>> getKafkaHistory(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "500") int limit) {
-        List<StockPrice> history = kafkaHistoryService.getHistoryFromKafka(symbol.toUpperCase(), limit);
+        List<StockPrice> history = kafkaHistoryCache.getHistory(symbol.toUpperCase(), limit);
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Stream historical data for specific symbol from Kafka as NDJSON (?format=ndjson)
+     */
+    @GetMapping(value = "/history/kafka/{symbol}", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamKafkaHistory(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "500") int limit) {
+        String upperSymbol = symbol.toUpperCase();
+        List<StockPrice> cached = kafkaHistoryCache.getHistoryIfCached(upperSymbol, limit);
+        if (cached != null) {
+            return NdjsonStreams.stream(objectMapper, cached::forEach);
+        }
+        return NdjsonStreams.stream(objectMapper, sink -> kafkaHistoryService.streamHistory(upperSymbol, limit, sink));
+    }
+
     /**
      * Get all historical data from Kafka (all symbols)
      */
     @GetMapping("/history/kafka/all")
     public ResponseEntity<List<StockPrice>> getAllKafkaHistory(
             @RequestParam(defaultValue = "1000") int limit) {
-        List<StockPrice> history = kafkaHistoryService.getAllHistoryFromKafka(limit);
+        List<StockPrice> history = kafkaHistoryCache.getAllHistory(limit);
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Stream all historical data from Kafka as NDJSON (?format=ndjson)
+     */
+    @GetMapping(value = "/history/kafka/all", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllKafkaHistory(
+            @RequestParam(defaultValue = "1000") int limit) {
+        List<StockPrice> cached = kafkaHistoryCache.getHistoryIfCached(null, limit);
+        if (cached != null) {
+            return NdjsonStreams.stream(objectMapper, cached::forEach);
+        }
+        return NdjsonStreams.stream(objectMapper, sink -> kafkaHistoryService.streamHistory(null, limit, sink));
+    }
+
     /**
      * Get historical data within time range (from in-memory storage)
      */
     @GetMapping("/history/{symbol}/range")
     public ResponseEntity<List<StockPrice>> getHistoryInRange(
+            @PathVariable String symbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer maxPoints,
+            @RequestParam(defaultValue = "lttb") String mode) {
+        if (maxPoints == null) {
+            return ResponseEntity.ok(stockDataService.getHistoryInRange(symbol.toUpperCase(), from, to));
+        }
+        Downsampler.Mode downsampleMode = downsampleMode(mode, maxPoints);
+        if (downsampleMode == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(
+                stockDataService.getHistoryInRange(symbol.toUpperCase(), from, to, maxPoints, downsampleMode));
+    }
+
+    /**
+     * Stream historical data within time range as NDJSON (?format=ndjson)
+     */
+    @GetMapping(value = "/history/{symbol}/range", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamHistoryInRange(
             @PathVariable String symbol,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
-        List<StockPrice> history = stockDataService.getHistoryInRange(symbol.toUpperCase(), from, to);
-        return ResponseEntity.ok(history);
+        return NdjsonStreams.stream(objectMapper,
+                sink -> stockDataService.forEachInRange(symbol.toUpperCase(), from, to, sink));
     }
 
     /**
@@ -124,19 +305,40 @@ public class StockApiController {
     public ResponseEntity<List<StockPrice>> getKafkaHistoryInRange(
             @PathVariable String symbol,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
-        List<StockPrice> history = kafkaHistoryService.getHistoryByTimeRange(symbol.toUpperCase(), from, to);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit) {
+        List<StockPrice> history = kafkaHistoryCache.getHistoryByTimeRange(symbol.toUpperCase(), from, to, limit);
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Stream historical data within time range from Kafka as NDJSON (?format=ndjson)
+     */
+    @GetMapping(value = "/history/kafka/{symbol}/range", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamKafkaHistoryInRange(
+            @PathVariable String symbol,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit) {
+        String upperSymbol = symbol.toUpperCase();
+        List<StockPrice> cached = kafkaHistoryCache.getHistoryByTimeRangeIfCached(upperSymbol, from, to, limit);
+        if (cached != null) {
+            return NdjsonStreams.stream(objectMapper, cached::forEach);
+        }
+        return NdjsonStreams.stream(objectMapper,
+                sink -> kafkaHistoryService.streamHistoryByTimeRange(upperSymbol, from, to, limit, sink));
+    }
+
     /**
      * Get statistics
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStatistics() {
-        Map<String, Object> stats = stockDataService.getStatistics();
-        stats.put("kafkaMessageCount", kafkaHistoryService.getMessageCount());
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<byte[]> getStatistics(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Both versions only grow, so their sum changes whenever either does
+        long version = stockDataService.getDataVersion() + kafkaHistoryService.getMessageCountVersion();
+        return statisticsResponse.respond(version, ifNoneMatch, acceptEncoding);
     }
 
     /**
@@ -147,10 +349,49 @@ public class StockApiController {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalMessages", kafkaHistoryService.getMessageCount());
         stats.put("topic", "stock-prices");
-        stats.put("timestamp", LocalDateTime.now());
+        stats.put("historyCache", kafkaHistoryCache.getStatistics());
+        stats.put("timestamp", Instant.now());
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Get WebSocket (STOMP) subscription statistics
+     */
+    @GetMapping("/stats/websocket")
+    public ResponseEntity<Map<String, Object>> getWebSocketStatistics() {
+        return ResponseEntity.ok(symbolSubscriptionRegistry.getStatistics());
+    }
+
+    /**
+     * Get correlation sampler statistics
+     */
+    @GetMapping("/stats/correlation")
+    public ResponseEntity<Map<String, Object>> getCorrelationStatistics() {
+        return ResponseEntity.ok(correlationService.getStatistics());
+    }
+
+    /**
+     * Get consumer backpressure statistics (listener pause/resume)
+     */
+    @GetMapping("/stats/backpressure")
+    public ResponseEntity<Map<String, Object>> getBackpressureStatistics() {
+        return ResponseEntity.ok(backpressureController.getStatistics());
+    }
+
+    /**
+     * Parse the downsampling mode; null if the mode or maxPoints is invalid
+     */
+    private static Downsampler.Mode downsampleMode(String mode, int maxPoints) {
+        if (maxPoints < 3) {
+            return null;
+        }
+        try {
+            return Downsampler.Mode.fromParam(mode);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**
      * Clear all data (for testing)
      */
@@ -160,7 +401,7 @@ public class StockApiController {
         Map<String, String> response = new HashMap<>();
         response.put("message", "All in-memory stock data cleared");
         response.put("note", "Kafka data is not affected");
-        response.put("timestamp", LocalDateTime.now().toString());
+        response.put("timestamp", Instant.now().toString());
         return ResponseEntity.ok(response);
     }
 }
@@ -4,30 +4,42 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.korshak.stockconsumer.model.StockPrice;
 import com.korshak.stockconsumer.service.StockDataService;
+import com.korshak.stockconsumer.service.StockStreamPublisher;
+import com.korshak.stockconsumer.service.SymbolIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Server-Sent Events (SSE) Controller for real-time stock price streaming
+ * Servlet mode (stock.stream.mode=servlet, default): one SseEmitter per connection
  */
 @RestController
 @RequestMapping("/api/stream")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
-public class StockStreamController {
+@ConditionalOnProperty(name = "stock.stream.mode", havingValue = "servlet", matchIfMissing = true)
+public class StockStreamController implements StockStreamPublisher {
 
     private static final Logger logger = LoggerFactory.getLogger(StockStreamController.class);
     private static final long SSE_TIMEOUT = 300_000L; // 5 minutes
+    static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 
     @Autowired
     private StockDataService stockDataService;
@@ -35,173 +47,222 @@ public class StockStreamController {
     @Autowired
     private ObjectMapper objectMapper;
 
-    // Store active SSE connections
-    private final CopyOnWriteArrayList<SseEmitter> allStockEmitters = new CopyOnWriteArrayList<>();
-    private final Map<String, CopyOnWriteArrayList<SseEmitter>> symbolEmitters = new ConcurrentHashMap<>();
+    @Autowired
+    private SymbolIndex symbolIndex;
 
-    /**
-     * SSE endpoint for all stock price updates
-     */
-    @GetMapping(value = "/stocks", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamAllStocks() {
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-        
-        allStockEmitters.add(emitter);
-        logger.info("New SSE client connected for all stocks. Active connections: {}", allStockEmitters.size());
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
-        // Send current prices immediately
-        try {
-            Map<String, StockPrice> currentPrices = stockDataService.getAllCurrentPrices();
-            if (!currentPrices.isEmpty()) {
-                for (StockPrice price : currentPrices.values()) {
-                    sendStockPrice(emitter, price);
-                }
-            } else {
-                emitter.send(SseEmitter.event()
-                    .name("info")
-                    .data("Connected to stock price stream. Waiting for data..."));
-            }
-        } catch (IOException e) {
-            logger.error("Error sending initial data to SSE client", e);
-            allStockEmitters.remove(emitter);
-        }
+    @Value("${stock.stream.max-pending-per-client}")
+    private int maxPendingPerClient;
 
-        // Handle emitter completion/timeout
-        emitter.onCompletion(() -> {
-            allStockEmitters.remove(emitter);
-            logger.info("SSE client disconnected from all stocks. Active connections: {}", allStockEmitters.size());
-        });
+    // Writes SSE events: inline on the broadcasting thread, or one virtual thread per busy client
+    private ExecutorService sendExecutor;
 
-        emitter.onTimeout(() -> {
-            allStockEmitters.remove(emitter);
-            logger.info("SSE client timeout for all stocks. Active connections: {}", allStockEmitters.size());
-        });
+    // Active SSE connections, routed by symbol
+    private SseSubscriptionRegistry subscriptions;
 
-        emitter.onError((throwable) -> {
-            allStockEmitters.remove(emitter);
-            logger.error("SSE error for all stocks client", throwable);
-        });
+    // Held while broadcasting a tick and while a new client gets its initial replay or
+    // snapshot and is registered, so no tick falls between the two
+    private final Object streamLock = new Object();
 
-        return emitter;
+    @PostConstruct
+    public void init() {
+        subscriptions = new SseSubscriptionRegistry(symbolIndex);
+        sendExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        logger.info("SSE send path uses {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sendExecutor != null) {
+            sendExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * SSE endpoint for all stock price updates, or for a watchlist of symbols
+     * (?symbols=AAPL,MSFT,GOOGL) over a single connection
+     * A reconnecting client (Last-Event-ID header or ?lastEventId=) gets the ticks it missed
+     */
+    @GetMapping(value = "/stocks", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAllStocks(
+            @RequestParam(required = false) String symbols,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        Long resumeAfter = parseLastEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        if (symbols == null || symbols.isBlank()) {
+            return openStream(null, "all stocks", resumeAfter);
+        }
+        Set<String> requested = SseSubscriptionRegistry.parseSymbols(symbols);
+        return openStream(requested, String.join(",", requested), resumeAfter);
     }
 
     /**
      * SSE endpoint for specific symbol updates
      */
     @GetMapping(value = "/stocks/{symbol}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamSymbol(@PathVariable String symbol) {
+    public SseEmitter streamSymbol(
+            @PathVariable String symbol,
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
         String upperSymbol = symbol.toUpperCase();
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        Long resumeAfter = parseLastEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+        return openStream(Set.of(upperSymbol), upperSymbol, resumeAfter);
+    }
+
+    /**
+     * Get SSE connection statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("allStocksConnections", subscriptions.allSymbolsSize());
+        stats.put("symbolConnections", subscriptions.countsBySymbol());
+        stats.put("totalConnections", subscriptions.size());
+        stats.put("mode", "servlet");
+        stats.put("pendingEvents", getPendingEvents());
+        stats.putAll(ThreadModeStats.collect(virtualThreads, subscriptions.size()));
         
-        symbolEmitters.computeIfAbsent(upperSymbol, k -> new CopyOnWriteArrayList<>()).add(emitter);
-        logger.info("New SSE client connected for symbol {}. Active connections: {}", 
-                   upperSymbol, symbolEmitters.get(upperSymbol).size());
+        return ResponseEntity.ok(stats);
+    }
 
-        // Send current price immediately
-        try {
-            StockPrice currentPrice = stockDataService.getCurrentPrice(upperSymbol);
-            if (currentPrice != null) {
-                sendStockPrice(emitter, currentPrice);
+    /**
+     * Broadcast stock price to all relevant SSE clients
+     * This method will be called by StockConsumerService
+     */
+    @Override
+    public void broadcastStockPrice(StockPrice stockPrice, long sequence) {
+        String json = toJson(stockPrice);
+        if (json == null) {
+            return;
+        }
+        synchronized (streamLock) {
+            subscriptions.forEachSubscriber(stockPrice.getSymbol(),
+                    connection -> connection.send("stock-price", json, sequence));
+        }
+    }
+
+    @Override
+    public long getPendingEvents() {
+        AtomicLong pending = new AtomicLong();
+        subscriptions.forEachConnection(connection -> pending.addAndGet(connection.getPendingCount()));
+        return pending.get();
+    }
+
+    /**
+     * Open an SSE stream for the given symbols (null for all symbols) and send the ticks
+     * missed since resumeAfter, or current prices when not resuming or the gap is too old
+     */
+    private SseEmitter openStream(Set<String> symbols, String description, Long resumeAfter) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        SymbolFilter symbolFilter = symbols != null ? SymbolFilter.of(symbols, symbolIndex) : null;
+
+        Executor executor = sendExecutor != null ? sendExecutor : Runnable::run;
+        SseConnection connection = new SseConnection(emitter, symbolFilter, executor, maxPendingPerClient, failed -> {
+            logger.warn("Failed to send data to SSE client for {}, removing connection", description);
+            subscriptions.unregister(failed);
+            failed.getEmitter().complete();
+        });
+
+        boolean sent = false;
+        synchronized (streamLock) {
+            long lastSequence = stockDataService.getLastSequence();
+            List<StockDataService.SequencedTick> missed = resumeAfter != null
+                    ? stockDataService.getTicksSince(resumeAfter, maxPendingPerClient)
+                    : null;
+
+            if (missed != null) {
+                // Resume: exactly the ticks this client missed, from the in-memory buffer
+                for (StockDataService.SequencedTick tick : missed) {
+                    String symbol = tick.stockPrice().getSymbol();
+                    if (connection.wants(symbolIndex.find(symbol), symbol)) {
+                        sent |= sendStockPrice(connection, tick.stockPrice(), tick.sequence());
+                    }
+                }
+                logger.info("Resumed SSE client for {} after event {}: {} missed ticks",
+                        description, resumeAfter, missed.size());
             } else {
-                emitter.send(SseEmitter.event()
-                    .name("info")
-                    .data("Connected to " + upperSymbol + " price stream. Waiting for data..."));
+                // Send current prices immediately, tagged with the latest sequence
+                if (symbols == null) {
+                    boolean[] any = new boolean[1];
+                    stockDataService.forEachCurrentPrice(price -> {
+                        connection.send("stock-price", price.toJson(objectMapper.getFactory()), lastSequence);
+                        any[0] = true;
+                    });
+                    sent = any[0];
+                } else {
+                    for (String symbol : symbols) {
+                        StockPrice price = stockDataService.getCurrentPrice(symbol);
+                        if (price != null) {
+                            sent |= sendStockPrice(connection, price, lastSequence);
+                        }
+                    }
+                }
             }
-        } catch (IOException e) {
-            logger.error("Error sending initial data to SSE client for symbol {}", upperSymbol, e);
-            symbolEmitters.get(upperSymbol).remove(emitter);
+
+            connection.resumedThrough(lastSequence);
+            subscriptions.register(connection);
+        }
+        logger.info("New SSE client connected for {}. Active connections: {}", description, subscriptions.size());
+
+        if (!sent && resumeAfter == null) {
+            connection.send("info", "Connected to " + description + " price stream. Waiting for data...");
         }
 
         // Handle emitter completion/timeout
         emitter.onCompletion(() -> {
-            CopyOnWriteArrayList<SseEmitter> emitters = symbolEmitters.get(upperSymbol);
-            if (emitters != null) {
-                emitters.remove(emitter);
-                logger.info("SSE client disconnected from {}. Active connections: {}", 
-                           upperSymbol, emitters.size());
-            }
+            closeConnection(connection);
+            logger.info("SSE client disconnected from {}. Active connections: {}", description, subscriptions.size());
         });
 
         emitter.onTimeout(() -> {
-            CopyOnWriteArrayList<SseEmitter> emitters = symbolEmitters.get(upperSymbol);
-            if (emitters != null) {
-                emitters.remove(emitter);
-                logger.info("SSE client timeout for {}. Active connections: {}", 
-                           upperSymbol, emitters.size());
-            }
+            closeConnection(connection);
+            logger.info("SSE client timeout for {}. Active connections: {}", description, subscriptions.size());
         });
 
         emitter.onError((throwable) -> {
-            CopyOnWriteArrayList<SseEmitter> emitters = symbolEmitters.get(upperSymbol);
-            if (emitters != null) {
-                emitters.remove(emitter);
-                logger.error("SSE error for {} client", upperSymbol, throwable);
-            }
+            closeConnection(connection);
+            logger.error("SSE error for {} client", description, throwable);
         });
 
         return emitter;
     }
 
-    /**
-     * Get SSE connection statistics
-     */
-    @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getStreamStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("allStocksConnections", allStockEmitters.size());
-        
-        Map<String, Integer> symbolConnections = new HashMap<>();
-        symbolEmitters.forEach((symbol, emitters) -> 
-            symbolConnections.put(symbol, emitters.size()));
-        stats.put("symbolConnections", symbolConnections);
-        
-        int totalConnections = allStockEmitters.size() + 
-            symbolEmitters.values().stream().mapToInt(CopyOnWriteArrayList::size).sum();
-        stats.put("totalConnections", totalConnections);
-        
-        return ResponseEntity.ok(stats);
+    private void closeConnection(SseConnection connection) {
+        connection.close();
+        subscriptions.unregister(connection);
     }
 
-    /**
-     * Broadcast stock price to all relevant SSE clients
-     * This method will be called by StockConsumerService
-     */
-    public void broadcastStockPrice(StockPrice stockPrice) {
-        // Broadcast to all stocks subscribers
-        broadcastToEmitters(allStockEmitters, stockPrice, "all-stocks");
-        
-        // Broadcast to specific symbol subscribers
-        String symbol = stockPrice.getSymbol();
-        CopyOnWriteArrayList<SseEmitter> symbolSpecificEmitters = symbolEmitters.get(symbol);
-        if (symbolSpecificEmitters != null && !symbolSpecificEmitters.isEmpty()) {
-            broadcastToEmitters(symbolSpecificEmitters, stockPrice, symbol);
+    private boolean sendStockPrice(SseConnection connection, StockPrice stockPrice, long sequence) {
+        String json = toJson(stockPrice);
+        if (json == null) {
+            return false;
         }
+        connection.send("stock-price", json, sequence);
+        return true;
     }
 
-    private void broadcastToEmitters(CopyOnWriteArrayList<SseEmitter> emitters, StockPrice stockPrice, String type) {
-        if (emitters.isEmpty()) {
-            return;
+    /**
+     * Sequence from a Last-Event-ID value; null when absent or not one of our ids
+     */
+    static Long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
         }
-
-        for (SseEmitter emitter : emitters) {
-            try {
-                sendStockPrice(emitter, stockPrice);
-            } catch (IOException e) {
-                logger.warn("Failed to send data to SSE client for {}, removing connection", type);
-                emitters.remove(emitter);
-            }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
-    private void sendStockPrice(SseEmitter emitter, StockPrice stockPrice) throws IOException {
+    private String toJson(StockPrice stockPrice) {
         try {
-            String json = objectMapper.writeValueAsString(stockPrice);
-            emitter.send(SseEmitter.event()
-                .name("stock-price")
-                .data(json));
+            return objectMapper.writeValueAsString(stockPrice);
         } catch (JsonProcessingException e) {
             logger.error("Error serializing stock price to JSON", e);
-            throw new IOException("JSON serialization error", e);
+            return null;
         }
     }
 }
@@ -0,0 +1,54 @@
+package com.korshak.stockconsumer.controller;
+
+import com.korshak.stockconsumer.service.SymbolIndex;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Symbols of one subscription. Symbols that have already had a tick are matched by id (see
+ * SymbolIndex); the others are matched by name, so subscribing never adds to the index and
+ * made-up symbols cost no more than the subscription itself. Immutable once built.
+ */
+final class SymbolFilter {
+
+    private final BitSet ids = new BitSet();
+    private final Set<String> pending = new HashSet<>();
+
+    private SymbolFilter() {}
+
+    static SymbolFilter of(Set<String> symbols, SymbolIndex symbolIndex) {
+        SymbolFilter filter = new SymbolFilter();
+        for (String symbol : symbols) {
+            int id = symbolIndex.find(symbol);
+            if (id >= 0) {
+                filter.ids.set(id);
+            } else {
+                filter.pending.add(symbol);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Ids of the subscribed symbols known when the filter was built
+     */
+    BitSet getIds() {
+        return ids;
+    }
+
+    /**
+     * Subscribed symbols that had no data yet when the filter was built
+     */
+    Set<String> getPending() {
+        return pending;
+    }
+
+    /**
+     * Whether a tick for the symbol (with its id, or -1) matches
+     */
+    boolean matches(int symbolId, String symbol) {
+        return (symbolId >= 0 && ids.get(symbolId)) || (!pending.isEmpty() && pending.contains(symbol));
+    }
+}
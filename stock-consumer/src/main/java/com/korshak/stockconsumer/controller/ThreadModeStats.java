@@ -0,0 +1,27 @@
+package com.korshak.stockconsumer.controller;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runtime figures used to compare platform-thread and virtual-thread modes:
+ * platform thread count and heap in use per open stream connection
+ */
+final class ThreadModeStats {
+
+    private ThreadModeStats() {}
+
+    static Map<String, Object> collect(boolean virtualThreads, int totalConnections) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapUsed = memory.getHeapMemoryUsage().getUsed();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threadMode", virtualThreads ? "virtual" : "platform");
+        stats.put("platformThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+        stats.put("heapUsedBytes", heapUsed);
+        stats.put("heapUsedPerConnectionBytes", totalConnections > 0 ? heapUsed / totalConnections : 0);
+        return stats;
+    }
+}
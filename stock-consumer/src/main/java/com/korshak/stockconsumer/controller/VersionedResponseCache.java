@@ -0,0 +1,135 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-serialized JSON response for one snapshot endpoint, rebuilt lazily at most once per
+ * data version. The body is kept both plain and gzipped, and requests carrying the current
+ * ETag in If-None-Match get a 304 without touching the data at all.
+ */
+class VersionedResponseCache {
+
+    private static final int GZIP_MIN_BYTES = 1024; // smaller bodies are not worth compressing
+
+    private final String name;
+    private final BodyWriter bodyWriter;
+
+    private volatile Entry entry;
+
+    VersionedResponseCache(String name, ObjectMapper objectMapper, Supplier<Object> bodySupplier) {
+        this(name, out -> objectMapper.writeValue(out, bodySupplier.get()));
+    }
+
+    /**
+     * Cache for a body written directly as JSON, without an intermediate object
+     */
+    VersionedResponseCache(String name, BodyWriter bodyWriter) {
+        this.name = name;
+        this.bodyWriter = bodyWriter;
+    }
+
+    ResponseEntity<byte[]> respond(long version, String ifNoneMatch, String acceptEncoding) {
+        String etag = etag(version);
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        Entry current = entryFor(version);
+        boolean gzip = current.gzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag(current.version()))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? current.gzip() : current.json());
+    }
+
+    private Entry entryFor(long version) {
+        Entry current = entry;
+        if (current != null && current.version() >= version) {
+            return current;
+        }
+        synchronized (this) {
+            current = entry;
+            if (current == null || current.version() < version) {
+                current = build(version);
+                entry = current;
+            }
+            return current;
+        }
+    }
+
+    private Entry build(long version) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            bodyWriter.writeTo(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("JSON serialization error", e);
+        }
+        byte[] json = buffer.toByteArray();
+        return new Entry(version, json, json.length >= GZIP_MIN_BYTES ? gzip(json) : null);
+    }
+
+    /**
+     * Whether an If-None-Match value (a comma separated list of entity tags, or *) names the
+     * tag; tags are compared weakly, ignoring any W/ prefix
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * Weak tag: the plain and gzipped bodies are the same representation for revalidation
+     */
+    private String etag(long version) {
+        return "W/\"" + name + "-" + version + "\"";
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private record Entry(long version, byte[] json, byte[] gzip) {}
+
+    /**
+     * Writes a response body as JSON
+     */
+    @FunctionalInterface
+    interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -7,7 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 import java.util.Map;
@@ -25,9 +25,11 @@ public class WebSocketController {
 
     /**
      * Handle subscription to all stock updates
+     * The current prices snapshot goes only to the requesting session (/user/queue/stock-snapshot);
+     * sent to the stock topic it would reach every subscriber
      */
     @MessageMapping("/subscribe/all")
-    @SendTo("/topic/stock-updates")
+    @SendToUser(destinations = "/queue/stock-snapshot", broadcast = false)
     public Map<String, StockPrice> subscribeToAllStocks() {
         logger.info("Client subscribed to all stock updates");
         return stockDataService.getAllCurrentPrices();
@@ -35,9 +37,10 @@ public class WebSocketController {
 
     /**
      * Handle subscription to specific symbol
+     * The current price goes only to the requesting session (/user/queue/stock-snapshot/{symbol})
      */
     @MessageMapping("/subscribe/{symbol}")
-    @SendTo("/topic/stock-updates/{symbol}")
+    @SendToUser(destinations = "/queue/stock-snapshot/{symbol}", broadcast = false)
     public StockPrice subscribeToSymbol(@DestinationVariable String symbol) {
         String upperSymbol = symbol.toUpperCase();
         logger.info("Client subscribed to {} updates", upperSymbol);
@@ -0,0 +1,39 @@
+package com.korshak.stockconsumer.history;
+
+/**
+ * Reader over a bit stream written by {@link BitOutput}
+ */
+class BitInput {
+
+    private final long[] words;
+    private long position;
+
+    BitInput(long[] words) {
+        this.words = words;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Read {@code count} bits (1..64) as an unsigned value
+     */
+    long readBits(int count) {
+        int index = (int) (position >>> 6);
+        int available = 64 - (int) (position & 63);
+
+        long result;
+        if (count <= available) {
+            result = words[index] >>> (available - count);
+        } else {
+            int spill = count - available;
+            result = (words[index] << spill) | (words[index + 1] >>> (64 - spill));
+        }
+        if (count < 64) {
+            result &= (1L << count) - 1;
+        }
+        position += count;
+        return result;
+    }
+}
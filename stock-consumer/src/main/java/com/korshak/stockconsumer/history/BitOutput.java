@@ -0,0 +1,50 @@
+package com.korshak.stockconsumer.history;
+
+import java.util.Arrays;
+
+/**
+ * Append-only bit stream backed by a long array (most significant bit first)
+ */
+class BitOutput {
+
+    private long[] words;
+    private long bitCount;
+
+    BitOutput(int initialWords) {
+        this.words = new long[Math.max(initialWords, 1)];
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the low {@code count} bits of the value (1..64)
+     */
+    void writeBits(long value, int count) {
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        int index = (int) (bitCount >>> 6);
+        int free = 64 - (int) (bitCount & 63);
+        if (index + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+
+        if (count <= free) {
+            words[index] |= value << (free - count);
+        } else {
+            int spill = count - free;
+            words[index] |= value >>> spill;
+            words[index + 1] |= value << (64 - spill);
+        }
+        bitCount += count;
+    }
+
+    /**
+     * Written words, trimmed to the bits used
+     */
+    long[] toWords() {
+        return Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+    }
+}
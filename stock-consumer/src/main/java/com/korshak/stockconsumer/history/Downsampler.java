@@ -0,0 +1,286 @@
+package com.korshak.stockconsumer.history;
+
+import com.korshak.stockconsumer.model.StockPrice;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reduces a tick series to at most {@code maxPoints} ticks for charting, in one pass over
+ * the ticks as they are streamed out of the history store (x = time, y = price).
+ *
+ * The expected number of ticks sizes the buckets; only the buckets being decided are
+ * buffered, never the whole series. If more ticks arrive than expected (the history grew
+ * between counting and reading), the extras fall into the last bucket. The first and
+ * last ticks are always kept.
+ */
+public abstract class Downsampler implements Consumer<StockPrice> {
+
+    public enum Mode {
+        /** Largest-triangle-three-buckets: one tick per bucket, the one that best preserves the shape */
+        LTTB,
+        /** Lowest and highest tick of each bucket, so spikes are never lost */
+        MINMAX;
+
+        public static Mode fromParam(String param) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(param)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("Unknown downsampling mode: " + param);
+        }
+    }
+
+    protected final List<StockPrice> result = new ArrayList<>();
+    private StockPrice held; // latest tick; only known to be a middle tick once another arrives
+    private long received;
+
+    /**
+     * @param expectedPoints number of ticks the source is expected to produce
+     */
+    public static Downsampler create(Mode mode, long expectedPoints, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        if (expectedPoints <= maxPoints) {
+            return new Downsampler() {
+                @Override
+                protected void middle(StockPrice tick, long index) {
+                    if (result.size() < maxPoints - 1) {
+                        result.add(tick);
+                    } else {
+                        // More ticks than expected: the extras share the last middle slot
+                        result.set(result.size() - 1, tick);
+                    }
+                }
+
+                @Override
+                protected void finishMiddle(StockPrice last) {}
+            };
+        }
+        // Min/max needs two points per bucket; with room for only one, fall back to LTTB
+        return mode == Mode.LTTB || maxPoints < 4
+                ? new Lttb(expectedPoints, maxPoints)
+                : new MinMax(expectedPoints, maxPoints);
+    }
+
+    @Override
+    public void accept(StockPrice tick) {
+        if (received == 0) {
+            result.add(tick);
+        } else if (held != null) {
+            middle(held, received - 1);
+        }
+        if (received > 0) {
+            held = tick;
+        }
+        received++;
+    }
+
+    /**
+     * Downsampled ticks in time order
+     */
+    public List<StockPrice> finish() {
+        finishMiddle(held);
+        if (held != null) {
+            result.add(held);
+            held = null;
+        }
+        return result;
+    }
+
+    /**
+     * Handle a tick that is neither the first nor the last; {@code index} starts at 1
+     */
+    protected abstract void middle(StockPrice tick, long index);
+
+    /**
+     * Flush buffered buckets; {@code last} is the final tick (null if only one was seen)
+     */
+    protected abstract void finishMiddle(StockPrice last);
+
+    static double x(StockPrice tick, long index) {
+        return tick.getTimestamp() != null
+                ? tick.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli()
+                : index;
+    }
+
+    /**
+     * Bucket of a middle tick: (n - 2) middle ticks split evenly over the buckets
+     */
+    static int bucketOf(long index, double bucketWidth, int buckets) {
+        return (int) Math.min((long) ((index - 1) / bucketWidth), buckets - 1);
+    }
+
+    private static class Lttb extends Downsampler {
+
+        private final int buckets;
+        private final double bucketWidth;
+
+        // Previously selected point (triangle vertex a)
+        private double selectedX;
+        private double selectedY;
+
+        private Bucket current;
+        private Bucket next;
+
+        Lttb(long expectedPoints, int maxPoints) {
+            this.buckets = maxPoints - 2;
+            this.bucketWidth = (double) (expectedPoints - 2) / buckets;
+        }
+
+        @Override
+        public void accept(StockPrice tick) {
+            if (result.isEmpty()) {
+                selectedX = x(tick, 0);
+                selectedY = tick.getPrice();
+            }
+            super.accept(tick);
+        }
+
+        @Override
+        protected void middle(StockPrice tick, long index) {
+            int bucket = bucketOf(index, bucketWidth, buckets);
+            double x = x(tick, index);
+
+            if (current == null) {
+                current = new Bucket(bucket);
+            } else if (bucket != current.index && next == null) {
+                next = new Bucket(bucket);
+            } else if (next != null && bucket != next.index) {
+                // Bucket after `next` started: `current` can be decided against next's average
+                select(current, next.averageX(), next.averageY());
+                current = next;
+                next = new Bucket(bucket);
+            }
+            (next != null ? next : current).add(tick, x);
+        }
+
+        @Override
+        protected void finishMiddle(StockPrice last) {
+            if (last == null) {
+                return;
+            }
+            double lastX = x(last, 0);
+            if (next != null) {
+                select(current, next.averageX(), next.averageY());
+                select(next, lastX, last.getPrice());
+            } else if (current != null) {
+                select(current, lastX, last.getPrice());
+            }
+        }
+
+        /**
+         * Keep the tick of the bucket forming the largest triangle with the previously
+         * selected tick and the given point (the next bucket's average)
+         */
+        private void select(Bucket bucket, double nextX, double nextY) {
+            int best = 0;
+            double bestArea = -1;
+            for (int i = 0; i < bucket.ticks.size(); i++) {
+                double x = bucket.xs.get(i);
+                double y = bucket.ticks.get(i).getPrice();
+                double area = Math.abs((selectedX - nextX) * (y - selectedY) - (selectedX - x) * (nextY - selectedY));
+                if (area > bestArea) {
+                    bestArea = area;
+                    best = i;
+                }
+            }
+            StockPrice chosen = bucket.ticks.get(best);
+            result.add(chosen);
+            selectedX = bucket.xs.get(best);
+            selectedY = chosen.getPrice();
+        }
+
+        private static class Bucket {
+            private final int index;
+            private final List<StockPrice> ticks = new ArrayList<>();
+            private final List<Double> xs = new ArrayList<>();
+            private double sumX;
+            private double sumY;
+
+            Bucket(int index) {
+                this.index = index;
+            }
+
+            void add(StockPrice tick, double x) {
+                ticks.add(tick);
+                xs.add(x);
+                sumX += x;
+                sumY += tick.getPrice();
+            }
+
+            double averageX() {
+                return sumX / ticks.size();
+            }
+
+            double averageY() {
+                return sumY / ticks.size();
+            }
+        }
+    }
+
+    private static class MinMax extends Downsampler {
+
+        private final int buckets;
+        private final double bucketWidth;
+
+        private int bucket = -1;
+        private StockPrice min;
+        private StockPrice max;
+        private long minIndex;
+        private long maxIndex;
+
+        MinMax(long expectedPoints, int maxPoints) {
+            this.buckets = (maxPoints - 2) / 2;
+            this.bucketWidth = (double) (expectedPoints - 2) / buckets;
+        }
+
+        @Override
+        protected void middle(StockPrice tick, long index) {
+            int tickBucket = bucketOf(index, bucketWidth, buckets);
+            if (tickBucket != bucket) {
+                flush();
+                bucket = tickBucket;
+                min = tick;
+                max = tick;
+                minIndex = index;
+                maxIndex = index;
+                return;
+            }
+            if (tick.getPrice() < min.getPrice()) {
+                min = tick;
+                minIndex = index;
+            }
+            if (tick.getPrice() > max.getPrice()) {
+                max = tick;
+                maxIndex = index;
+            }
+        }
+
+        @Override
+        protected void finishMiddle(StockPrice last) {
+            flush();
+        }
+
+        private void flush() {
+            if (min == null) {
+                return;
+            }
+            if (min == max) {
+                result.add(min);
+            } else if (minIndex < maxIndex) {
+                result.add(min);
+                result.add(max);
+            } else {
+                result.add(max);
+                result.add(min);
+            }
+            min = null;
+            max = null;
+        }
+    }
+}
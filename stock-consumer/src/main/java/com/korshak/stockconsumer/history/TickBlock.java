@@ -0,0 +1,145 @@
+package com.korshak.stockconsumer.history;
+
+import com.korshak.stockconsumer.model.StockPrice;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Sealed, immutable block of one symbol's ticks, compressed into a single bit stream:
+ * delta-of-delta timestamps (epoch millis, UTC) and XOR-encoded price, change and
+ * change percent. Decoding is sequential through a {@link Reader}.
+ * Ticks without a timestamp are stored as {@link #NO_TIMESTAMP}, decode back to null and
+ * fall outside every time range, like untimed ticks in the hot tail.
+ */
+final class TickBlock {
+
+    static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final long[] words;
+    private final int count;
+    private final int timedCount;
+    private final long minMillis;
+    private final long maxMillis;
+
+    private TickBlock(long[] words, int count, int timedCount, long minMillis, long maxMillis) {
+        this.words = words;
+        this.count = count;
+        this.timedCount = timedCount;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Compress ticks (in arrival order)
+     */
+    static TickBlock encode(List<StockPrice> ticks) {
+        BitOutput out = new BitOutput(ticks.size() * 2);
+        TimestampCodec timestamps = new TimestampCodec();
+        XorCodec prices = new XorCodec();
+        XorCodec changes = new XorCodec();
+        XorCodec changePercents = new XorCodec();
+
+        int timedCount = 0;
+        long minMillis = Long.MAX_VALUE;
+        long maxMillis = Long.MIN_VALUE;
+        for (StockPrice tick : ticks) {
+            long millis = toEpochMillis(tick.getTimestamp());
+            if (millis != NO_TIMESTAMP) {
+                timedCount++;
+                minMillis = Math.min(minMillis, millis);
+                maxMillis = Math.max(maxMillis, millis);
+            }
+
+            timestamps.encode(out, millis);
+            prices.encode(out, tick.getPrice());
+            changes.encode(out, tick.getChange());
+            changePercents.encode(out, tick.getChangePercent());
+        }
+        return new TickBlock(out.toWords(), ticks.size(), timedCount, minMillis, maxMillis);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Number of ticks with a timestamp
+     */
+    int getTimedCount() {
+        return timedCount;
+    }
+
+    /**
+     * Earliest timestamp in the block (Long.MAX_VALUE if no tick has one)
+     */
+    long getMinMillis() {
+        return minMillis;
+    }
+
+    /**
+     * Latest timestamp in the block (Long.MIN_VALUE if no tick has one)
+     */
+    long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Approximate heap footprint of the block
+     */
+    long getSizeBytes() {
+        return 16L + words.length * 8L + 32L;
+    }
+
+    Reader reader() {
+        return new Reader();
+    }
+
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIMESTAMP;
+    }
+
+    /**
+     * Sequential decoder; fields are valid after {@link #next()} returns true.
+     * Skipped ticks are decoded but never materialized as objects.
+     */
+    final class Reader {
+
+        private final BitInput in = new BitInput(words);
+        private final TimestampCodec timestamps = new TimestampCodec();
+        private final XorCodec prices = new XorCodec();
+        private final XorCodec changes = new XorCodec();
+        private final XorCodec changePercents = new XorCodec();
+        private int remaining = count;
+
+        private long millis;
+        private double price;
+        private double change;
+        private double changePercent;
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            millis = timestamps.decode(in);
+            price = prices.decode(in);
+            change = changes.decode(in);
+            changePercent = changePercents.decode(in);
+            return true;
+        }
+
+        long millis() {
+            return millis;
+        }
+
+        StockPrice toStockPrice(String symbol) {
+            LocalDateTime timestamp = millis != NO_TIMESTAMP
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC)
+                    : null;
+            return new StockPrice(symbol, price, change, changePercent, timestamp);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.korshak.stockconsumer.history;
+
+import com.korshak.stockconsumer.model.StockPrice;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Tiered tick history for one symbol.
+ *
+ * New ticks go to a hot, uncompressed tail; when it reaches the block size it is sealed
+ * into a compressed {@link TickBlock}. Blocks older than the retention window are dropped
+ * whole. Reads take a snapshot under the lock (block references and a copy of the tail)
+ * and decode outside it, streaming ticks to the caller oldest first.
+ */
+public class TickHistory {
+
+    private final String symbol;
+    private final int blockSize;
+    private final long retentionMillis;
+
+    private final ArrayDeque<TickBlock> blocks = new ArrayDeque<>();
+    private List<StockPrice> hot;
+    private int sealedCount;
+    private long sealedBytes;
+    private long newestMillis = Long.MIN_VALUE;
+
+    public TickHistory(String symbol, int blockSize, long retentionMillis) {
+        this.symbol = symbol;
+        this.blockSize = blockSize;
+        this.retentionMillis = retentionMillis;
+        this.hot = new ArrayList<>(blockSize);
+    }
+
+    public synchronized void add(StockPrice stockPrice) {
+        hot.add(stockPrice);
+        if (stockPrice.getTimestamp() != null) {
+            newestMillis = Math.max(newestMillis, TickBlock.toEpochMillis(stockPrice.getTimestamp()));
+        }
+
+        if (hot.size() >= blockSize) {
+            TickBlock block = TickBlock.encode(hot);
+            blocks.addLast(block);
+            sealedCount += block.getCount();
+            sealedBytes += block.getSizeBytes();
+            hot = new ArrayList<>(blockSize);
+            evictExpired();
+        }
+    }
+
+    private void evictExpired() {
+        if (newestMillis == Long.MIN_VALUE) {
+            return; // no timestamped tick yet
+        }
+        long cutoff = newestMillis - retentionMillis;
+        while (!blocks.isEmpty() && blocks.peekFirst().getMaxMillis() < cutoff) {
+            TickBlock expired = blocks.pollFirst();
+            sealedCount -= expired.getCount();
+            sealedBytes -= expired.getSizeBytes();
+        }
+    }
+
+    /**
+     * Number of ticks held (sealed and hot)
+     */
+    public synchronized int size() {
+        return sealedCount + hot.size();
+    }
+
+    public synchronized int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Approximate memory used by sealed blocks
+     */
+    public synchronized long getCompressedBytes() {
+        return sealedBytes;
+    }
+
+    public synchronized int getHotSize() {
+        return hot.size();
+    }
+
+    /**
+     * Stream every tick, oldest first
+     */
+    public void forEach(Consumer<StockPrice> action) {
+        forEachRecent(Integer.MAX_VALUE, action);
+    }
+
+    /**
+     * Stream the last {@code limit} ticks, oldest first; whole blocks before them are skipped
+     */
+    public void forEachRecent(int limit, Consumer<StockPrice> action) {
+        Snapshot snapshot = snapshot();
+        long total = snapshot.sealedCount() + snapshot.hot().length;
+        long skip = Math.max(0, total - Math.max(limit, 0));
+
+        for (TickBlock block : snapshot.blocks()) {
+            if (skip >= block.getCount()) {
+                skip -= block.getCount();
+                continue;
+            }
+            TickBlock.Reader reader = block.reader();
+            while (reader.next()) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    action.accept(reader.toStockPrice(symbol));
+                }
+            }
+        }
+        for (StockPrice tick : snapshot.hot()) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                action.accept(tick);
+            }
+        }
+    }
+
+    /**
+     * Stream ticks strictly between {@code from} and {@code to}, oldest first; blocks whose
+     * time span is outside the range are skipped without decoding
+     */
+    public void forEachInRange(LocalDateTime from, LocalDateTime to, Consumer<StockPrice> action) {
+        long fromMillis = TickBlock.toEpochMillis(from);
+        long toMillis = TickBlock.toEpochMillis(to);
+        Snapshot snapshot = snapshot();
+
+        for (TickBlock block : snapshot.blocks()) {
+            if (block.getMaxMillis() <= fromMillis || block.getMinMillis() >= toMillis) {
+                continue;
+            }
+            TickBlock.Reader reader = block.reader();
+            while (reader.next()) {
+                if (reader.millis() > fromMillis && reader.millis() < toMillis) {
+                    action.accept(reader.toStockPrice(symbol));
+                }
+            }
+        }
+        for (StockPrice tick : snapshot.hot()) {
+            LocalDateTime timestamp = tick.getTimestamp();
+            if (timestamp != null && timestamp.isAfter(from) && timestamp.isBefore(to)) {
+                action.accept(tick);
+            }
+        }
+    }
+
+    /**
+     * Number of ticks strictly between {@code from} and {@code to}; blocks entirely inside
+     * the range are counted without decoding
+     */
+    public long countInRange(LocalDateTime from, LocalDateTime to) {
+        long fromMillis = TickBlock.toEpochMillis(from);
+        long toMillis = TickBlock.toEpochMillis(to);
+        Snapshot snapshot = snapshot();
+
+        long count = 0;
+        for (TickBlock block : snapshot.blocks()) {
+            if (block.getMaxMillis() <= fromMillis || block.getMinMillis() >= toMillis) {
+                continue;
+            }
+            if (block.getMinMillis() > fromMillis && block.getMaxMillis() < toMillis) {
+                count += block.getTimedCount();
+                continue;
+            }
+            TickBlock.Reader reader = block.reader();
+            while (reader.next()) {
+                if (reader.millis() > fromMillis && reader.millis() < toMillis) {
+                    count++;
+                }
+            }
+        }
+        for (StockPrice tick : snapshot.hot()) {
+            LocalDateTime timestamp = tick.getTimestamp();
+            if (timestamp != null && timestamp.isAfter(from) && timestamp.isBefore(to)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private synchronized Snapshot snapshot() {
+        return new Snapshot(blocks.toArray(new TickBlock[0]), sealedCount, hot.toArray(new StockPrice[0]));
+    }
+
+    private record Snapshot(TickBlock[] blocks, long sealedCount, StockPrice[] hot) {}
+}
@@ -0,0 +1,68 @@
+package com.korshak.stockconsumer.history;
+
+/**
+ * Delta-of-delta timestamp encoding (Gorilla): ticks arriving at a steady rate cost one bit,
+ * jitter costs 9 to 16 bits, anything else falls back to the raw 64-bit value.
+ * The same instance state is used to encode or to decode one stream.
+ */
+class TimestampCodec {
+
+    private long previous;
+    private long previousDelta;
+    private boolean started;
+
+    void encode(BitOutput out, long timestamp) {
+        if (!started) {
+            started = true;
+            previous = timestamp;
+            out.writeBits(timestamp, 64);
+            return;
+        }
+
+        long delta = timestamp - previous;
+        long deltaOfDelta = delta - previousDelta;
+        previous = timestamp;
+        previousDelta = delta;
+
+        if (deltaOfDelta == 0) {
+            out.writeBit(false);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(deltaOfDelta + 2047, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    long decode(BitInput in) {
+        if (!started) {
+            started = true;
+            previous = in.readBits(64);
+            return previous;
+        }
+
+        long deltaOfDelta;
+        if (!in.readBit()) {
+            deltaOfDelta = 0;
+        } else if (!in.readBit()) {
+            deltaOfDelta = in.readBits(7) - 63;
+        } else if (!in.readBit()) {
+            deltaOfDelta = in.readBits(9) - 255;
+        } else if (!in.readBit()) {
+            deltaOfDelta = in.readBits(12) - 2047;
+        } else {
+            deltaOfDelta = in.readBits(64);
+        }
+
+        previousDelta += deltaOfDelta;
+        previous += previousDelta;
+        return previous;
+    }
+}
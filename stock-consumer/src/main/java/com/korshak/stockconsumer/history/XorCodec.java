@@ -0,0 +1,53 @@
+package com.korshak.stockconsumer.history;
+
+/**
+ * XOR double encoding (Gorilla): a repeated value costs one bit; otherwise only the
+ * meaningful bits of the XOR with the previous value are written, reusing the previous
+ * leading/trailing zero window when the new XOR fits in it.
+ * The same instance state is used to encode or to decode one stream.
+ */
+class XorCodec {
+
+    private long previous;
+    private int leading = -1;
+    private int trailing;
+
+    void encode(BitOutput out, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        long xor = bits ^ previous;
+        previous = bits;
+
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+
+        int newLeading = Math.min(Long.numberOfLeadingZeros(xor), 31); // 5-bit field
+        int newTrailing = Long.numberOfTrailingZeros(xor);
+        if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+            out.writeBit(false);
+            out.writeBits(xor >>> trailing, 64 - leading - trailing);
+        } else {
+            int significant = 64 - newLeading - newTrailing;
+            out.writeBit(true);
+            out.writeBits(newLeading, 5);
+            out.writeBits(significant - 1, 6);
+            out.writeBits(xor >>> newTrailing, significant);
+            leading = newLeading;
+            trailing = newTrailing;
+        }
+    }
+
+    double decode(BitInput in) {
+        if (in.readBit()) {
+            if (in.readBit()) {
+                leading = (int) in.readBits(5);
+                int significant = (int) in.readBits(6) + 1;
+                trailing = 64 - leading - significant;
+            }
+            previous ^= in.readBits(64 - leading - trailing) << trailing;
+        }
+        return Double.longBitsToDouble(previous);
+    }
+}
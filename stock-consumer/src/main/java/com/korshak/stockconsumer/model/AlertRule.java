@@ -0,0 +1,78 @@
+package com.korshak.stockconsumer.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+/**
+ * Price alert rule registered by a client. Rules fire once and are then removed.
+ */
+public class AlertRule {
+    
+    private String id;
+    private String symbol;
+    private AlertType type;
+    private double threshold;
+    private int windowSeconds;
+    
+    // UTC, written with a trailing Z; the Z is optional when reading
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss['Z']")
+    private LocalDateTime createdAt;
+    
+    // Default constructor
+    public AlertRule() {}
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+    
+    public AlertType getType() {
+        return type;
+    }
+    
+    public void setType(AlertType type) {
+        this.type = type;
+    }
+    
+    public double getThreshold() {
+        return threshold;
+    }
+    
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+    
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+    
+    public void setWindowSeconds(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("AlertRule{id='%s', symbol='%s', type=%s, threshold=%.2f, windowSeconds=%d}",
+                id, symbol, type, threshold, windowSeconds);
+    }
+}
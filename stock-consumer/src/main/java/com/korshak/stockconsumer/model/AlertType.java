@@ -0,0 +1,16 @@
+package com.korshak.stockconsumer.model;
+
+/**
+ * Price alert rule types
+ */
+public enum AlertType {
+    /** Price moves from below the threshold to at or above it */
+    CROSS_ABOVE,
+    /** Price moves from above the threshold to at or below it */
+    CROSS_BELOW,
+    /**
+     * Change over the last windowSeconds reaches the threshold percent
+     * (positive threshold: rise, negative threshold: fall)
+     */
+    PERCENT_MOVE
+}
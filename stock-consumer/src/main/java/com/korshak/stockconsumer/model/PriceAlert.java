@@ -0,0 +1,108 @@
+package com.korshak.stockconsumer.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import java.time.LocalDateTime;
+
+/**
+ * Fired price alert, sent to alert stream subscribers
+ */
+public class PriceAlert {
+    
+    private String ruleId;
+    private String symbol;
+    private AlertType type;
+    private double threshold;
+    private double price;
+    private double previousPrice;
+    private double changePercent;
+    
+    // UTC, written with a trailing Z; the Z is optional when reading
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss['Z']")
+    private LocalDateTime timestamp;
+    
+    // Default constructor
+    public PriceAlert() {}
+    
+    // Constructor
+    public PriceAlert(AlertRule rule, double price, double previousPrice, double changePercent, LocalDateTime timestamp) {
+        this.ruleId = rule.getId();
+        this.symbol = rule.getSymbol();
+        this.type = rule.getType();
+        this.threshold = rule.getThreshold();
+        this.price = price;
+        this.previousPrice = previousPrice;
+        this.changePercent = changePercent;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters and Setters
+    public String getRuleId() {
+        return ruleId;
+    }
+    
+    public void setRuleId(String ruleId) {
+        this.ruleId = ruleId;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+    
+    public AlertType getType() {
+        return type;
+    }
+    
+    public void setType(AlertType type) {
+        this.type = type;
+    }
+    
+    public double getThreshold() {
+        return threshold;
+    }
+    
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+    
+    public double getPrice() {
+        return price;
+    }
+    
+    public void setPrice(double price) {
+        this.price = price;
+    }
+    
+    public double getPreviousPrice() {
+        return previousPrice;
+    }
+    
+    public void setPreviousPrice(double previousPrice) {
+        this.previousPrice = previousPrice;
+    }
+    
+    public double getChangePercent() {
+        return changePercent;
+    }
+    
+    public void setChangePercent(double changePercent) {
+        this.changePercent = changePercent;
+    }
+    
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("PriceAlert{ruleId='%s', symbol='%s', type=%s, threshold=%.2f, price=%.2f}",
+                ruleId, symbol, type, threshold, price);
+    }
+}
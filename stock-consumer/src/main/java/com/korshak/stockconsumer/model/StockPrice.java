@@ -13,7 +13,8 @@ public class StockPrice {
     private double change;
     private double changePercent;
     
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    // UTC, written with a trailing Z; the Z is optional when reading
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss['Z']")
     private LocalDateTime timestamp;
     
     // Default constructor
@@ -0,0 +1,17 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.PriceAlert;
+
+import java.util.List;
+
+/**
+ * Outbound stream of fired alerts fed by {@link StockConsumerService}.
+ * Implemented by the alert SSE controller, so the listener does not depend on the web layer.
+ */
+public interface AlertPublisher {
+
+    /**
+     * Push alerts fired by one tick to interested clients
+     */
+    void publishAlerts(List<PriceAlert> alerts);
+}
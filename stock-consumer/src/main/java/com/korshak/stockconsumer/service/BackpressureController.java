@@ -0,0 +1,160 @@
+package com.korshak.stockconsumer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pauses the stock price listener when fan-out to SSE/STOMP clients falls behind and
+ * resumes it once clients have caught up.
+ *
+ * Load is judged by the number of events queued for clients (SSE connection queues or
+ * reactive subscriber buffers, plus STOMP messages waiting for the clientOutboundChannel
+ * thread pool) and by the smoothed time the listener spends broadcasting one tick. The
+ * listener pauses above the high thresholds and resumes only once queues are below the
+ * lower resume threshold and a minimum pause has passed (hysteresis). Pausing stops
+ * fetching on all assigned partitions; the consumer keeps its position, so on resume it
+ * continues with the next record after the last one processed.
+ */
+@Component
+public class BackpressureController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackpressureController.class);
+    private static final double LATENCY_SMOOTHING = 0.2; // EWMA weight of the latest broadcast
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private StockStreamPublisher stockStreamPublisher;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private TaskExecutor clientOutboundChannelExecutor;
+
+    @Value("${stock.backpressure.enabled}")
+    private boolean enabled;
+
+    @Value("${stock.consumer.listener-id}")
+    private String listenerId;
+
+    @Value("${stock.backpressure.pause-pending-events}")
+    private long pausePendingEvents;
+
+    @Value("${stock.backpressure.resume-pending-events}")
+    private long resumePendingEvents;
+
+    @Value("${stock.backpressure.pause-latency-ms}")
+    private double pauseLatencyMs;
+
+    @Value("${stock.backpressure.min-pause-ms}")
+    private long minPauseMs;
+
+    // Written by the listener thread only
+    private volatile double broadcastLatencyMs;
+
+    private volatile boolean paused;
+    private volatile long pausedAtMillis;
+    private volatile long lastPendingEvents;
+    private volatile long lastStompPendingMessages;
+    private final AtomicLong pauseCount = new AtomicLong();
+    private final AtomicLong totalPausedMillis = new AtomicLong();
+
+    /**
+     * Record how long broadcasting one tick took (called on the listener thread)
+     */
+    public void recordBroadcast(long elapsedNanos) {
+        double latestMs = elapsedNanos / 1_000_000.0;
+        broadcastLatencyMs = LATENCY_SMOOTHING * latestMs + (1 - LATENCY_SMOOTHING) * broadcastLatencyMs;
+    }
+
+    /**
+     * Compare current load against the thresholds and pause or resume the listener
+     */
+    @Scheduled(fixedDelayString = "${stock.backpressure.check-interval}")
+    public void checkLoad() {
+        if (!enabled) {
+            return;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+
+        long stompPendingMessages = getStompPendingMessages();
+        long pendingEvents = stockStreamPublisher.getPendingEvents() + stompPendingMessages;
+        lastPendingEvents = pendingEvents;
+        lastStompPendingMessages = stompPendingMessages;
+        double latencyMs = broadcastLatencyMs;
+
+        if (!paused) {
+            if (pendingEvents >= pausePendingEvents || latencyMs >= pauseLatencyMs) {
+                container.pause();
+                paused = true;
+                pausedAtMillis = System.currentTimeMillis();
+                pauseCount.incrementAndGet();
+                logger.warn("Paused Kafka listener: pendingEvents={}, broadcastLatencyMs={}",
+                           pendingEvents, String.format("%.2f", latencyMs));
+            }
+            return;
+        }
+
+        // No ticks are broadcast while paused, so the latency estimate is stale; only the
+        // client queues can drain. Resume once they are low and the minimum pause has passed.
+        long pausedFor = System.currentTimeMillis() - pausedAtMillis;
+        if (pausedFor >= minPauseMs && pendingEvents <= resumePendingEvents) {
+            container.resume();
+            paused = false;
+            totalPausedMillis.addAndGet(pausedFor);
+            broadcastLatencyMs = 0; // re-measured from the next ticks
+            logger.info("Resumed Kafka listener after {} ms: pendingEvents={}", pausedFor, pendingEvents);
+        }
+    }
+
+    /**
+     * STOMP messages queued for the clientOutboundChannel thread pool and not yet written
+     * to WebSocket sessions
+     */
+    private long getStompPendingMessages() {
+        if (clientOutboundChannelExecutor instanceof ThreadPoolTaskExecutor executor) {
+            return executor.getThreadPoolExecutor().getQueue().size();
+        }
+        return 0;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Backpressure metrics
+     */
+    public Map<String, Object> getStatistics() {
+        long pausedFor = paused ? System.currentTimeMillis() - pausedAtMillis : 0;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("paused", paused);
+        stats.put("pauseCount", pauseCount.get());
+        stats.put("totalPausedMillis", totalPausedMillis.get() + pausedFor);
+        stats.put("pendingEvents", lastPendingEvents);
+        stats.put("stompPendingMessages", lastStompPendingMessages);
+        stats.put("broadcastLatencyMs", broadcastLatencyMs);
+        stats.put("pausePendingEvents", pausePendingEvents);
+        stats.put("resumePendingEvents", resumePendingEvents);
+        stats.put("pauseLatencyMs", pauseLatencyMs);
+        return stats;
+    }
+}
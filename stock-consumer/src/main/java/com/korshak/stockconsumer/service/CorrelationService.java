@@ -0,0 +1,416 @@
+package com.korshak.stockconsumer.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Rolling covariance and correlation of returns across all symbol pairs.
+ *
+ * Ticks arrive at different times per symbol, so prices are sampled on a fixed grid
+ * (the last price of every symbol each stock.correlation.sample-interval-ms) and log returns
+ * are kept in a ring buffer per symbol. For the default window, running sums of x and x*y
+ * for every pair are updated incrementally on each sample (add the new return, subtract the
+ * one leaving the window) and rebuilt from the rings once per window to cancel rounding
+ * drift. Other windows are computed on request from the rings. With at least
+ * stock.correlation.parallel-threshold symbols, rows of the pair matrix are processed in
+ * parallel on a fork-join pool. None of this runs on the Kafka listener thread.
+ *
+ * A symbol's returns before its first two samples count as zero, so its statistics are
+ * exact once it has been sampled for a full window.
+ */
+@Service
+public class CorrelationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CorrelationService.class);
+    private static final int ROWS_PER_TASK = 16;
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Value("${stock.correlation.sample-interval-ms}")
+    private long sampleIntervalMillis;
+
+    @Value("${stock.correlation.window-samples}")
+    private int windowSamples;
+
+    @Value("${stock.correlation.max-window-samples}")
+    private int maxWindowSamples;
+
+    @Value("${stock.correlation.parallel-threshold}")
+    private int parallelThreshold;
+
+    private ForkJoinPool pool;
+
+    // All state below is guarded by this
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private double[] lastPrices = new double[0];
+    private double[] sampledPrices = new double[0];  // prices read by the current sample
+    private double[][] returns = new double[0][];   // ring of returns per column
+    private double[] sumX = new double[0];          // over the default window
+    private double[][] sumXY = new double[0][];     // row i holds columns 0..i (diagonal: sum of x^2)
+    private long sampleCount;
+    private long samplesSinceRebuild;
+    private double lastSampleMillis;
+
+    @PostConstruct
+    public void init() {
+        maxWindowSamples = Math.max(maxWindowSamples, windowSamples);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Take one sample: the return of every known symbol since the previous sample
+     */
+    @Scheduled(fixedRateString = "${stock.correlation.sample-interval-ms}")
+    public void sample() {
+        long started = System.nanoTime();
+        int sampled;
+
+        synchronized (this) {
+            Arrays.fill(sampledPrices, Double.NaN);
+            int[] seen = new int[1];
+            stockDataService.forEachCurrentPrice(price -> {
+                int column = columnOf(price.getSymbol()); // may grow sampledPrices, so not inlined below
+                sampledPrices[column] = price.getPrice();
+                seen[0]++;
+            });
+            sampled = seen[0];
+            if (sampled == 0) {
+                return;
+            }
+            int n = symbols.size();
+            int slot = (int) (sampleCount % maxWindowSamples);
+            // Slot of the return leaving the default window, or -1 while the window is filling
+            int evictedSlot = sampleCount >= windowSamples
+                    ? (int) ((sampleCount - windowSamples) % maxWindowSamples)
+                    : -1;
+
+            double[] added = new double[n];
+            double[] evicted = new double[n];
+            for (int i = 0; i < n; i++) {
+                double price = sampledPrices[i];
+                double r = 0;
+                if (price > 0) {
+                    if (lastPrices[i] > 0) {
+                        r = Math.log(price / lastPrices[i]);
+                    }
+                    lastPrices[i] = price;
+                }
+                evicted[i] = evictedSlot >= 0 ? returns[i][evictedSlot] : 0;
+                returns[i][slot] = r;
+                added[i] = r;
+            }
+            sampleCount++;
+
+            if (++samplesSinceRebuild >= windowSamples) {
+                samplesSinceRebuild = 0;
+                rebuildSums(n);
+            } else {
+                forEachRow(n, i -> {
+                    double[] row = sumXY[i];
+                    double xi = added[i];
+                    double oi = evicted[i];
+                    for (int j = 0; j <= i; j++) {
+                        row[j] += xi * added[j] - oi * evicted[j];
+                    }
+                    sumX[i] += xi - oi;
+                });
+            }
+            lastSampleMillis = (System.nanoTime() - started) / 1_000_000.0;
+        }
+        logger.debug("Correlation sample over {} symbols took {} ms", sampled,
+                String.format("%.2f", lastSampleMillis));
+    }
+
+    /**
+     * Number of samples in a window given as a duration (e.g. 30s, 5m, 1h); null gives the
+     * default window
+     *
+     * @throws IllegalArgumentException if the window is malformed or not between 2 samples
+     * and the ring buffer length
+     */
+    public int windowSamples(String window) {
+        if (window == null || window.isBlank()) {
+            return windowSamples;
+        }
+        String value = window.trim().toLowerCase();
+        long unitMillis = switch (value.charAt(value.length() - 1)) {
+            case 's' -> 1_000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            default -> throw new IllegalArgumentException("Window must end in s, m or h: " + window);
+        };
+        long amount;
+        try {
+            amount = Long.parseLong(value.substring(0, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid window: " + window);
+        }
+        long samples = amount * unitMillis / sampleIntervalMillis;
+        if (samples < 2 || samples > maxWindowSamples) {
+            throw new IllegalArgumentException("Window must cover 2 to " + maxWindowSamples + " samples of "
+                    + sampleIntervalMillis + " ms: " + window);
+        }
+        return (int) samples;
+    }
+
+    /**
+     * Covariance and correlation of returns over the last {@code window} samples for the
+     * requested symbols (null for all symbols); unknown symbols are left out
+     */
+    public CorrelationMatrix getCorrelation(Collection<String> requested, int window) {
+        if (window == windowSamples) {
+            synchronized (this) {
+                return fromSums(resolve(requested));
+            }
+        }
+
+        // Copy the series under the lock, compute outside it
+        List<String> names = new ArrayList<>();
+        double[][] series;
+        synchronized (this) {
+            int[] cols = resolve(requested);
+            int samples = (int) Math.min(sampleCount, window);
+            series = new double[cols.length][samples];
+            for (int c = 0; c < cols.length; c++) {
+                names.add(symbols.get(cols[c]));
+                double[] ring = returns[cols[c]];
+                for (int k = 0; k < samples; k++) {
+                    series[c][k] = ring[(int) ((sampleCount - samples + k) % maxWindowSamples)];
+                }
+            }
+        }
+        return fromSeries(names, series);
+    }
+
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("symbols", symbols.size());
+        stats.put("samples", sampleCount);
+        stats.put("sampleIntervalMs", sampleIntervalMillis);
+        stats.put("windowSamples", windowSamples);
+        stats.put("maxWindowSamples", maxWindowSamples);
+        stats.put("parallel", symbols.size() >= parallelThreshold);
+        stats.put("lastSampleMs", lastSampleMillis);
+        return stats;
+    }
+
+    public long getSampleIntervalMillis() {
+        return sampleIntervalMillis;
+    }
+
+    /**
+     * Result for the default window, read from the running sums
+     */
+    private CorrelationMatrix fromSums(int[] cols) {
+        int k = cols.length;
+        List<String> names = new ArrayList<>(k);
+        int samples = (int) Math.min(sampleCount, windowSamples);
+        Double[][] covariance = new Double[k][k];
+        Double[][] correlation = new Double[k][k];
+        double[] variance = new double[k];
+        for (int a = 0; a < k; a++) {
+            names.add(symbols.get(cols[a]));
+            variance[a] = covariance(cols[a], cols[a], samples);
+        }
+        for (int a = 0; a < k; a++) {
+            for (int b = 0; b <= a; b++) {
+                double cov = a == b ? variance[a] : covariance(cols[a], cols[b], samples);
+                fill(covariance, correlation, a, b, cov, variance[a], variance[b]);
+            }
+        }
+        return new CorrelationMatrix(names, samples, covariance, correlation);
+    }
+
+    private double covariance(int i, int j, int samples) {
+        if (samples < 2) {
+            return Double.NaN;
+        }
+        double sxy = i >= j ? sumXY[i][j] : sumXY[j][i];
+        return (sxy - sumX[i] * sumX[j] / samples) / (samples - 1);
+    }
+
+    /**
+     * Result for any window, computed from copied series (rows in parallel when large)
+     */
+    private CorrelationMatrix fromSeries(List<String> names, double[][] series) {
+        int k = series.length;
+        int samples = k > 0 ? series[0].length : 0;
+        Double[][] covariance = new Double[k][k];
+        Double[][] correlation = new Double[k][k];
+
+        // Center each series first (two-pass), then every pair is a plain dot product
+        double[] variance = new double[k];
+        for (int a = 0; a < k; a++) {
+            double mean = 0;
+            for (double x : series[a]) {
+                mean += x;
+            }
+            mean = samples > 0 ? mean / samples : 0;
+            double squares = 0;
+            for (int s = 0; s < samples; s++) {
+                series[a][s] -= mean;
+                squares += series[a][s] * series[a][s];
+            }
+            variance[a] = samples > 1 ? squares / (samples - 1) : Double.NaN;
+        }
+
+        forEachRow(k, a -> {
+            for (int b = 0; b <= a; b++) {
+                double cov = Double.NaN;
+                if (samples > 1) {
+                    double dot = 0;
+                    for (int s = 0; s < samples; s++) {
+                        dot += series[a][s] * series[b][s];
+                    }
+                    cov = dot / (samples - 1);
+                }
+                fill(covariance, correlation, a, b, cov, variance[a], variance[b]);
+            }
+        });
+        return new CorrelationMatrix(names, samples, covariance, correlation);
+    }
+
+    private static void fill(Double[][] covariance, Double[][] correlation, int a, int b,
+                             double cov, double varianceA, double varianceB) {
+        Double covValue = Double.isNaN(cov) ? null : cov;
+        Double corrValue = null;
+        if (!Double.isNaN(cov) && varianceA > 0 && varianceB > 0) {
+            corrValue = Math.max(-1.0, Math.min(1.0, cov / Math.sqrt(varianceA * varianceB)));
+        }
+        covariance[a][b] = covValue;
+        covariance[b][a] = covValue;
+        correlation[a][b] = corrValue;
+        correlation[b][a] = corrValue;
+    }
+
+    /**
+     * Recompute the running sums of the default window from the ring buffers
+     */
+    private void rebuildSums(int n) {
+        int samples = (int) Math.min(sampleCount, windowSamples);
+        int[] slots = new int[samples];
+        for (int k = 0; k < samples; k++) {
+            slots[k] = (int) ((sampleCount - samples + k) % maxWindowSamples);
+        }
+        forEachRow(n, i -> {
+            double[] xs = returns[i];
+            double sx = 0;
+            for (int slot : slots) {
+                sx += xs[slot];
+            }
+            sumX[i] = sx;
+            for (int j = 0; j <= i; j++) {
+                double[] ys = returns[j];
+                double sxy = 0;
+                for (int slot : slots) {
+                    sxy += xs[slot] * ys[slot];
+                }
+                sumXY[i][j] = sxy;
+            }
+        });
+    }
+
+    /**
+     * Run the action for rows 0..n-1, on the fork-join pool once there are enough rows
+     */
+    private void forEachRow(int n, IntConsumer action) {
+        if (n < parallelThreshold) {
+            for (int i = 0; i < n; i++) {
+                action.accept(i);
+            }
+        } else {
+            pool.invoke(new RowTask(0, n, action));
+        }
+    }
+
+    private int[] resolve(Collection<String> requested) {
+        if (requested == null) {
+            int[] all = new int[symbols.size()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        return requested.stream()
+                .map(columns::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Column of a symbol, adding one (with an empty history) the first time it is seen
+     */
+    private int columnOf(String symbol) {
+        Integer column = columns.get(symbol);
+        if (column != null) {
+            return column;
+        }
+        int id = symbols.size();
+        if (id == returns.length) {
+            int capacity = Math.max(16, id * 2);
+            lastPrices = Arrays.copyOf(lastPrices, capacity);
+            sampledPrices = Arrays.copyOf(sampledPrices, capacity);
+            returns = Arrays.copyOf(returns, capacity);
+            sumX = Arrays.copyOf(sumX, capacity);
+            sumXY = Arrays.copyOf(sumXY, capacity);
+        }
+        sampledPrices[id] = Double.NaN;
+        returns[id] = new double[maxWindowSamples];
+        sumXY[id] = new double[id + 1];
+        symbols.add(symbol);
+        columns.put(symbol, id);
+        return id;
+    }
+
+    /**
+     * Splits a range of matrix rows until it is small enough to run directly
+     */
+    private static class RowTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final transient IntConsumer action; // the task is never serialized
+
+        RowTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowTask(from, middle, action), new RowTask(middle, to, action));
+        }
+    }
+
+    /**
+     * Pairwise statistics; entries are null where undefined (too few samples, no variance)
+     */
+    public record CorrelationMatrix(List<String> symbols, int samples,
+                                    Double[][] covariance, Double[][] correlation) {}
+}
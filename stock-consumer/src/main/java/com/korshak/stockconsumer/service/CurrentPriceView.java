@@ -0,0 +1,88 @@
+package com.korshak.stockconsumer.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.korshak.stockconsumer.model.StockPrice;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Read-only view of one symbol's current price, filled in place from the off-heap table
+ * while iterating, so snapshot reads do not build a StockPrice per symbol.
+ * The same instance is reused for every symbol: it is only valid inside the callback it is
+ * passed to (copy it with {@link #toStockPrice()} to keep it).
+ */
+public final class CurrentPriceView {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    String symbol;
+    double price;
+    double change;
+    double changePercent;
+    long epochSecond;
+    int nanos;
+    boolean hasTimestamp;
+
+    CurrentPriceView() {}
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getChange() {
+        return change;
+    }
+
+    public double getChangePercent() {
+        return changePercent;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return hasTimestamp ? LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC) : null;
+    }
+
+    public StockPrice toStockPrice() {
+        return new StockPrice(symbol, price, change, changePercent, getTimestamp());
+    }
+
+    /**
+     * Write the price as a JSON object, the same as a serialized StockPrice
+     */
+    public void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("symbol", symbol);
+        generator.writeNumberField("price", price);
+        generator.writeNumberField("change", change);
+        generator.writeNumberField("changePercent", changePercent);
+        generator.writeFieldName("timestamp");
+        if (hasTimestamp) {
+            generator.writeString(TIMESTAMP_FORMAT.format(getTimestamp()));
+        } else {
+            generator.writeNull();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * The price as a JSON string, the same as a serialized StockPrice
+     */
+    public String toJson(JsonFactory jsonFactory) {
+        StringWriter writer = new StringWriter(128);
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            writeJson(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
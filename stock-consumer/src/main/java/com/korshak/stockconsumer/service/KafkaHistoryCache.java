@@ -0,0 +1,204 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of Kafka history query results in front of {@link KafkaHistoryService}.
+ *
+ * Results are keyed by query (symbol plus limit or time range), expire after a TTL and
+ * are evicted least recently used first once the total number of cached records or
+ * entries exceeds its bound. Concurrent identical queries share one in-flight broker read.
+ * "Last N" results go stale as ticks arrive, so the TTL bounds how old a hit can be.
+ * A failed broker read is never cached: its exception reaches the caller and every
+ * caller waiting on the same read.
+ */
+@Service
+public class KafkaHistoryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaHistoryCache.class);
+
+    @Autowired
+    private KafkaHistoryService kafkaHistoryService;
+
+    @Value("${stock.history.kafka.cache.ttl-ms}")
+    private long ttlMillis;
+
+    @Value("${stock.history.kafka.cache.max-records}")
+    private long maxRecords;
+
+    @Value("${stock.history.kafka.cache.max-entries}")
+    private int maxEntries;
+
+    // Access-ordered: iteration starts at the least recently used entry (guarded by this)
+    private final LinkedHashMap<Query, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRecords;
+
+    private final Map<Query, CompletableFuture<List<StockPrice>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public List<StockPrice> getHistory(String symbol, int limit) {
+        return get(Query.recent(symbol, limit), () -> kafkaHistoryService.getHistoryFromKafka(symbol, limit));
+    }
+
+    public List<StockPrice> getAllHistory(int limit) {
+        return get(Query.recent(null, limit), () -> kafkaHistoryService.getAllHistoryFromKafka(limit));
+    }
+
+    public List<StockPrice> getHistoryByTimeRange(String symbol, LocalDateTime from, LocalDateTime to, int limit) {
+        return get(Query.range(symbol, from, to, limit),
+                () -> kafkaHistoryService.getHistoryByTimeRange(symbol, from, to, limit));
+    }
+
+    /**
+     * Cached result of a last-N query, or null; never loads (used by streaming endpoints,
+     * which read the broker directly on a miss rather than materializing the result)
+     */
+    public List<StockPrice> getHistoryIfCached(String symbol, int limit) {
+        return getIfPresent(Query.recent(symbol, limit));
+    }
+
+    /**
+     * Cached result of a time range query, or null; never loads
+     */
+    public List<StockPrice> getHistoryByTimeRangeIfCached(String symbol, LocalDateTime from, LocalDateTime to,
+                                                          int limit) {
+        return getIfPresent(Query.range(symbol, from, to, limit));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("coalesced", coalesced.sum());
+        stats.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("inFlight", inFlight.size());
+        synchronized (this) {
+            stats.put("entries", entries.size());
+            stats.put("cachedRecords", cachedRecords);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxRecords", maxRecords);
+        stats.put("ttlMs", ttlMillis);
+        return stats;
+    }
+
+    private List<StockPrice> get(Query query, Supplier<List<StockPrice>> loader) {
+        List<StockPrice> cached = getIfPresent(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<List<StockPrice>> load = new CompletableFuture<>();
+        CompletableFuture<List<StockPrice>> existing = inFlight.putIfAbsent(query, load);
+        if (existing != null) {
+            // Same query already going to the broker: wait for its result
+            coalesced.increment();
+            return join(existing);
+        }
+
+        misses.increment();
+        try {
+            List<StockPrice> result = Collections.unmodifiableList(loader.get());
+            put(query, result);
+            load.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(query, load);
+        }
+    }
+
+    private synchronized List<StockPrice> getIfPresent(Query query) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt() > ttlMillis) {
+            remove(query, entry);
+            expirations.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result();
+    }
+
+    private synchronized void put(Query query, List<StockPrice> result) {
+        if (result.size() > maxRecords / 4) {
+            logger.debug("Not caching {}: {} records is too large", query, result.size());
+            return;
+        }
+        Entry previous = entries.put(query, new Entry(result, System.currentTimeMillis()));
+        if (previous != null) {
+            cachedRecords -= previous.result().size();
+        }
+        cachedRecords += result.size();
+
+        // Evict least recently used entries until both bounds hold
+        Iterator<Map.Entry<Query, Entry>> eldest = entries.entrySet().iterator();
+        while ((cachedRecords > maxRecords || entries.size() > maxEntries) && eldest.hasNext()) {
+            Map.Entry<Query, Entry> candidate = eldest.next();
+            if (candidate.getKey().equals(query)) {
+                continue;
+            }
+            cachedRecords -= candidate.getValue().result().size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Query query, Entry entry) {
+        entries.remove(query);
+        cachedRecords -= entry.result().size();
+    }
+
+    private static List<StockPrice> join(CompletableFuture<List<StockPrice>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cache key: symbol (null for all symbols) plus either a limit or a time range
+     */
+    private record Query(String symbol, int limit, LocalDateTime from, LocalDateTime to) {
+
+        static Query recent(String symbol, int limit) {
+            return new Query(symbol, limit, null, null);
+        }
+
+        static Query range(String symbol, LocalDateTime from, LocalDateTime to, int limit) {
+            return new Query(symbol, limit, from, to);
+        }
+    }
+
+    private record Entry(List<StockPrice> result, long loadedAt) {}
+}
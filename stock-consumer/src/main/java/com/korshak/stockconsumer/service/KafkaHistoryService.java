@@ -0,0 +1,340 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads stock price history directly from the Kafka topic.
+ *
+ * Every query uses its own short-lived consumer with manually assigned partitions (no group
+ * membership, no offset commits). Records are handed to the caller as they are polled, so
+ * memory is bounded by one poll batch whatever the size of the result; the list variants
+ * are built on top of the streaming ones.
+ */
+@Service
+public class KafkaHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaHistoryService.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final int MAX_EMPTY_POLLS = 5;
+    // Record timestamps trail tick timestamps slightly; range scans read this far past `to`
+    private static final long RANGE_SLACK_MILLIS = 60_000L;
+
+    @Autowired
+    private ConsumerFactory<String, StockPrice> consumerFactory;
+
+    @Value("${stock.consumer.topic}")
+    private String topic;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${stock.history.kafka.max-poll-records}")
+    private int maxPollRecords;
+
+    @Value("${stock.history.kafka.scan-chunk}")
+    private int scanChunk;
+
+    // Topic record count refreshed on a timer, and bumped version whenever it changes
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong messageCountVersion = new AtomicLong();
+
+    /**
+     * Total number of records currently retained in the topic
+     */
+    public long getMessageCount() {
+        try (Consumer<String, StockPrice> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            long count = 0;
+            for (TopicPartition partition : partitions) {
+                count += end.get(partition) - beginning.get(partition);
+            }
+            return count;
+        } catch (Exception e) {
+            logger.error("Error counting Kafka messages", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Re-count the records in the topic for getCachedMessageCount
+     */
+    @Scheduled(fixedDelayString = "${stock.history.kafka.message-count-refresh-ms}")
+    public void refreshMessageCount() {
+        long count = getMessageCount();
+        if (messageCount.getAndSet(count) != count) {
+            messageCountVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record count from the last refresh; no broker round trips
+     */
+    public long getCachedMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * Version of the cached record count; changes whenever the count does
+     */
+    public long getMessageCountVersion() {
+        return messageCountVersion.get();
+    }
+
+    /**
+     * Get the last {@code limit} records for a symbol
+     */
+    public List<StockPrice> getHistoryFromKafka(String symbol, int limit) {
+        List<StockPrice> result = new ArrayList<>();
+        streamHistory(symbol, limit, result::add);
+        return result;
+    }
+
+    /**
+     * Get the last {@code limit} records across all symbols
+     */
+    public List<StockPrice> getAllHistoryFromKafka(int limit) {
+        List<StockPrice> result = new ArrayList<>();
+        streamHistory(null, limit, result::add);
+        return result;
+    }
+
+    /**
+     * Get records for a symbol within a time range
+     */
+    public List<StockPrice> getHistoryByTimeRange(String symbol, LocalDateTime from, LocalDateTime to) {
+        return getHistoryByTimeRange(symbol, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the first {@code limit} records for a symbol within a time range
+     */
+    public List<StockPrice> getHistoryByTimeRange(String symbol, LocalDateTime from, LocalDateTime to, int limit) {
+        List<StockPrice> result = new ArrayList<>();
+        streamHistoryByTimeRange(symbol, from, to, limit, result::add);
+        return result;
+    }
+
+    /**
+     * Stream the last {@code limit} records for a symbol (null for all symbols), in timestamp order.
+     *
+     * For all symbols, every partition's tail is read in parallel and merged by timestamp.
+     * For one symbol, the tail is located first: a symbol can be spread over several partitions
+     * (the producer moves hot symbols), so chunks are stepped back on whichever partition has
+     * been scanned least far back in time, until {@code limit} matches are newer than anything
+     * left unscanned. Those windows are then merged by timestamp like the all-symbol case and
+     * the oldest surplus is skipped; nothing is buffered.
+     */
+    public void streamHistory(String symbol, int limit, java.util.function.Consumer<StockPrice> action) {
+        if (limit <= 0) {
+            return;
+        }
+        if (symbol == null) {
+            streamAllHistory(limit, action);
+            return;
+        }
+
+        List<PartitionScan.Range> ranges = new ArrayList<>();
+        long matches = 0;
+        try (Consumer<String, StockPrice> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            // Oldest record time scanned so far, for partitions with records left to scan
+            Map<TopicPartition, Long> frontier = new HashMap<>();
+            Map<TopicPartition, Long> start = new HashMap<>(end);
+            for (TopicPartition partition : partitions) {
+                if (end.get(partition) > beginning.get(partition)) {
+                    frontier.put(partition, Long.MAX_VALUE);
+                }
+            }
+
+            // Match times newer than every frontier so far are final; the rest wait in a max-heap
+            PriorityQueue<Long> pending = new PriorityQueue<>(Comparator.reverseOrder());
+            long settled = 0;
+            while (!frontier.isEmpty()) {
+                TopicPartition partition = Collections.max(frontier.entrySet(), Map.Entry.comparingByValue()).getKey();
+                long cutoff = frontier.get(partition);
+                while (!pending.isEmpty() && pending.peek() >= cutoff) {
+                    pending.poll();
+                    settled++;
+                }
+                if (settled >= limit) {
+                    break;
+                }
+
+                long chunkEnd = start.get(partition);
+                long chunkStart = Math.max(beginning.get(partition), chunkEnd - scanChunk);
+                long oldest = scanMatches(consumer, partition, chunkStart, chunkEnd, symbol, pending::add);
+                start.put(partition, chunkStart);
+                if (chunkStart <= beginning.get(partition)) {
+                    frontier.remove(partition);
+                } else {
+                    frontier.put(partition, Math.min(cutoff, oldest));
+                }
+            }
+            matches = settled + pending.size();
+
+            for (TopicPartition partition : partitions) {
+                ranges.add(new PartitionScan.Range(partition, start.get(partition), end.get(partition)));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Error locating history in Kafka for " + symbol, e);
+        }
+
+        new PartitionScan(this::createConsumer, symbol, Long.MAX_VALUE, POLL_TIMEOUT, MAX_EMPTY_POLLS)
+                .run(ranges, Math.max(0, matches - limit), limit, stockPrice -> true, action);
+    }
+
+    /**
+     * Stream the last {@code limit} records across all symbols in timestamp order.
+     * The last N overall are among the last N of each partition, so each partition's tail
+     * is read by its own reader in parallel and the oldest surplus is skipped in the merge.
+     */
+    private void streamAllHistory(int limit, java.util.function.Consumer<StockPrice> action) {
+        List<PartitionScan.Range> ranges = new ArrayList<>();
+        long total = 0;
+        try (Consumer<String, StockPrice> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            for (TopicPartition partition : partitions) {
+                long endOffset = end.get(partition);
+                long startOffset = Math.max(beginning.get(partition), endOffset - limit);
+                ranges.add(new PartitionScan.Range(partition, startOffset, endOffset));
+                total += endOffset - startOffset;
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Error reading partition offsets for all-symbol history", e);
+        }
+
+        new PartitionScan(this::createConsumer, null, Long.MAX_VALUE, POLL_TIMEOUT, MAX_EMPTY_POLLS)
+                .run(ranges, Math.max(0, total - limit), limit, stockPrice -> true, action);
+    }
+
+    /**
+     * Stream records for a symbol whose timestamp is strictly between {@code from} and {@code to}
+     */
+    public void streamHistoryByTimeRange(String symbol, LocalDateTime from, LocalDateTime to,
+                                         java.util.function.Consumer<StockPrice> action) {
+        streamHistoryByTimeRange(symbol, from, to, Integer.MAX_VALUE, action);
+    }
+
+    /**
+     * Stream the first {@code limit} records for a symbol whose timestamp is strictly between
+     * {@code from} and {@code to}, in timestamp order.
+     *
+     * Every partition is positioned with the broker's time index and read by its own reader
+     * in parallel; a reader stops once its records are past {@code to}, and the whole scan
+     * stops once {@code limit} records have been merged.
+     */
+    public void streamHistoryByTimeRange(String symbol, LocalDateTime from, LocalDateTime to, int limit,
+                                         java.util.function.Consumer<StockPrice> action) {
+        if (limit <= 0) {
+            return;
+        }
+        // Record timestamps are the producer's send time; tick timestamps are UTC, as everywhere else
+        long fromMillis = from.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long toMillis = to.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        List<PartitionScan.Range> ranges = new ArrayList<>();
+        try (Consumer<String, StockPrice> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            Map<TopicPartition, Long> query = new HashMap<>();
+            partitions.forEach(partition -> query.put(partition, fromMillis));
+            Map<TopicPartition, OffsetAndTimestamp> startOffsets = consumer.offsetsForTimes(query);
+
+            for (TopicPartition partition : partitions) {
+                OffsetAndTimestamp startOffset = startOffsets.get(partition);
+                if (startOffset != null) {
+                    ranges.add(new PartitionScan.Range(partition, startOffset.offset(), end.get(partition)));
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(
+                    "Error reading partition offsets for " + symbol + " between " + from + " and " + to, e);
+        }
+
+        new PartitionScan(this::createConsumer, symbol, toMillis + RANGE_SLACK_MILLIS, POLL_TIMEOUT, MAX_EMPTY_POLLS)
+                .run(ranges, 0, limit, stockPrice -> {
+                    LocalDateTime timestamp = stockPrice.getTimestamp();
+                    return timestamp != null && timestamp.isAfter(from) && timestamp.isBefore(to);
+                }, action);
+    }
+
+    /**
+     * Read offsets [fromOffset, toOffset) of one partition, passing the record time of each
+     * record for the symbol to matchTimes; returns the oldest record time read (any key), or
+     * Long.MAX_VALUE if nothing was read
+     */
+    private long scanMatches(Consumer<String, StockPrice> consumer, TopicPartition partition,
+                             long fromOffset, long toOffset, String symbol, LongConsumer matchTimes) {
+        consumer.assign(Collections.singletonList(partition));
+        consumer.seek(partition, fromOffset);
+
+        long oldest = Long.MAX_VALUE;
+        int emptyPolls = 0;
+        while (consumer.position(partition) < toOffset && emptyPolls < MAX_EMPTY_POLLS) {
+            ConsumerRecords<String, StockPrice> records = consumer.poll(POLL_TIMEOUT);
+            if (records.isEmpty()) {
+                emptyPolls++;
+                continue;
+            }
+            emptyPolls = 0;
+            for (ConsumerRecord<String, StockPrice> record : records.records(partition)) {
+                if (record.offset() >= toOffset) {
+                    return oldest;
+                }
+                oldest = Math.min(oldest, record.timestamp());
+                if (record.value() != null && symbol.equals(record.key())) {
+                    matchTimes.accept(record.timestamp());
+                }
+            }
+        }
+        return oldest;
+    }
+
+    private List<TopicPartition> partitions(Consumer<String, StockPrice> consumer) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : consumer.partitionsFor(topic)) {
+            partitions.add(new TopicPartition(topic, info.partition()));
+        }
+        partitions.sort(Comparator.comparingInt(TopicPartition::partition));
+        return partitions;
+    }
+
+    private Consumer<String, StockPrice> createConsumer() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return consumerFactory.createConsumer(groupId + "-history", "history", null, overrides);
+    }
+}
@@ -0,0 +1,42 @@
+package com.korshak.stockconsumer.service;
+
+/**
+ * Time windows for the top movers leaderboard
+ */
+public enum MoverWindow {
+
+    SESSION("session", 0),
+    ONE_MINUTE("1m", 60_000),
+    FIVE_MINUTES("5m", 300_000);
+
+    private final String param;
+    private final long millis;
+
+    MoverWindow(String param, long millis) {
+        this.param = param;
+        this.millis = millis;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * Window length in milliseconds (0 for the whole session)
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Parse a request parameter (session, 1m, 5m)
+     */
+    public static MoverWindow fromParam(String param) {
+        for (MoverWindow window : values()) {
+            if (window.param.equalsIgnoreCase(param)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown movers window: " + param);
+    }
+}
@@ -0,0 +1,90 @@
+package com.korshak.stockconsumer.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Symbols ranked by change over one window, kept sorted as ticks arrive.
+ * Two skip lists order the same entries by percent change and by absolute change;
+ * an update replaces the symbol's entry in both (O(log n)), and the top N gainers or
+ * losers are read from either end without sorting. Entries whose last tick is older than
+ * the window are evicted, since a symbol that stopped trading has no change over it.
+ */
+public class MoversLeaderboard {
+
+    private static final Comparator<Mover> BY_PERCENT = Comparator
+            .comparingDouble(Mover::changePercent)
+            .thenComparing(Mover::symbol);
+
+    private static final Comparator<Mover> BY_CHANGE = Comparator
+            .comparingDouble(Mover::change)
+            .thenComparing(Mover::symbol);
+
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Mover> percentRanking = new ConcurrentSkipListSet<>(BY_PERCENT);
+    private final ConcurrentSkipListSet<Mover> changeRanking = new ConcurrentSkipListSet<>(BY_CHANGE);
+
+    /**
+     * Replace the symbol's entry (single writer: the Kafka listener thread)
+     */
+    void update(String symbol, double price, double change, double changePercent, long timeMillis) {
+        Mover mover = new Mover(symbol, price, change, changePercent);
+        Entry previous = current.put(symbol, new Entry(mover, timeMillis));
+        if (previous != null) {
+            percentRanking.remove(previous.mover());
+            changeRanking.remove(previous.mover());
+        }
+        percentRanking.add(mover);
+        changeRanking.add(mover);
+    }
+
+    /**
+     * Remove entries last updated before the cutoff; returns how many were removed.
+     * Runs beside the listener: an entry is only removed if it was not replaced meanwhile.
+     */
+    int evictOlderThan(long cutoffMillis) {
+        int evicted = 0;
+        for (Map.Entry<String, Entry> candidate : current.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.timeMillis() < cutoffMillis && current.remove(candidate.getKey(), entry)) {
+                percentRanking.remove(entry.mover());
+                changeRanking.remove(entry.mover());
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Top N gainers (largest positive change first) or losers (largest negative change first)
+     */
+    List<Mover> top(int limit, boolean byPercent, boolean gainers) {
+        NavigableSet<Mover> ranking = byPercent ? percentRanking : changeRanking;
+        Iterator<Mover> iterator = gainers ? ranking.descendingIterator() : ranking.iterator();
+
+        List<Mover> result = new ArrayList<>(Math.min(limit, current.size()));
+        while (iterator.hasNext() && result.size() < limit) {
+            Mover mover = iterator.next();
+            double value = byPercent ? mover.changePercent() : mover.change();
+            if (gainers ? value <= 0 : value >= 0) {
+                break; // past the gainers (or losers) side of the ranking
+            }
+            result.add(mover);
+        }
+        return result;
+    }
+
+    void clear() {
+        current.clear();
+        percentRanking.clear();
+        changeRanking.clear();
+    }
+
+    /**
+     * One leaderboard entry: latest price and change over the window
+     */
+    public record Mover(String symbol, double price, double change, double changePercent) {}
+
+    private record Entry(Mover mover, long timeMillis) {}
+}
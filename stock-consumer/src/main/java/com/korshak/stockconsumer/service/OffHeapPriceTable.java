@@ -0,0 +1,230 @@
+package com.korshak.stockconsumer.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.korshak.stockconsumer.model.StockPrice;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Latest price per symbol id, stored off-heap in fixed 48-byte records so the heap does not
+ * grow with the symbol universe. Records live in direct-buffer pages allocated as ids grow.
+ *
+ * Each record is guarded by a seqlock: a writer makes the record's sequence odd, writes the
+ * fields and makes it even again; readers never block, they copy the fields and retry if the
+ * sequence was odd or changed meanwhile.
+ */
+class OffHeapPriceTable {
+
+    // Record layout
+    private static final int SEQUENCE = 0;        // long, odd while a write is in progress
+    private static final int PRICE = 8;           // double
+    private static final int CHANGE = 16;         // double
+    private static final int CHANGE_PERCENT = 24; // double
+    private static final int EPOCH_SECOND = 32;   // long, timestamp as UTC
+    private static final int NANOS = 40;          // int
+    private static final int FLAGS = 44;          // int
+    private static final int RECORD_BYTES = 48;
+
+    private static final int PRESENT = 1;
+    private static final int HAS_TIMESTAMP = 2;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int pageRecords;
+    private volatile ByteBuffer[] pages = new ByteBuffer[0];
+    private final AtomicInteger size = new AtomicInteger();
+
+    OffHeapPriceTable(int pageRecords) {
+        this.pageRecords = pageRecords;
+    }
+
+    /**
+     * Store the latest price for a symbol id; returns true if the id had no price before
+     */
+    boolean put(int id, StockPrice stockPrice) {
+        ByteBuffer page = pageForWrite(id);
+        int offset = (id % pageRecords) * RECORD_BYTES;
+        LocalDateTime timestamp = stockPrice.getTimestamp();
+
+        long sequence = beginWrite(page, offset);
+        boolean added = (page.getInt(offset + FLAGS) & PRESENT) == 0;
+        page.putDouble(offset + PRICE, stockPrice.getPrice());
+        page.putDouble(offset + CHANGE, stockPrice.getChange());
+        page.putDouble(offset + CHANGE_PERCENT, stockPrice.getChangePercent());
+        page.putLong(offset + EPOCH_SECOND, timestamp != null ? timestamp.toEpochSecond(ZoneOffset.UTC) : 0);
+        page.putInt(offset + NANOS, timestamp != null ? timestamp.getNano() : 0);
+        page.putInt(offset + FLAGS, PRESENT | (timestamp != null ? HAS_TIMESTAMP : 0));
+        endWrite(page, offset, sequence);
+
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Latest price for a symbol id as a new StockPrice, or null
+     */
+    StockPrice get(int id, String symbol) {
+        CurrentPriceView view = new CurrentPriceView();
+        if (!read(id, view)) {
+            return null;
+        }
+        view.symbol = symbol;
+        return view.toStockPrice();
+    }
+
+    /**
+     * Number of ids with a price
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Direct memory held by the table
+     */
+    long getOffHeapBytes() {
+        return (long) pages.length * pageRecords * RECORD_BYTES;
+    }
+
+    /**
+     * Remove every price; pages are kept for reuse
+     */
+    void clear() {
+        for (ByteBuffer page : pages) {
+            for (int offset = 0; offset < page.capacity(); offset += RECORD_BYTES) {
+                if ((page.getInt(offset + FLAGS) & PRESENT) == 0) {
+                    continue;
+                }
+                long sequence = beginWrite(page, offset);
+                boolean removed = (page.getInt(offset + FLAGS) & PRESENT) != 0;
+                page.putInt(offset + FLAGS, 0);
+                endWrite(page, offset, sequence);
+                if (removed) {
+                    size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit the prices of ids 0 .. size-1 with one reused view, reading records straight
+     * from the pages; ids without a price or symbol are skipped
+     */
+    void forEach(int size, IntFunction<String> symbolOf, Consumer<CurrentPriceView> action) {
+        CurrentPriceView view = new CurrentPriceView();
+        for (int id = 0; id < size; id++) {
+            if (!read(id, view)) {
+                continue;
+            }
+            view.symbol = symbolOf.apply(id);
+            if (view.symbol != null) {
+                action.accept(view);
+            }
+        }
+    }
+
+    /**
+     * Write the prices of ids 0 .. size-1 as a JSON object of symbol -> price (the same shape
+     * as a serialized Map of StockPrice) without building objects
+     */
+    void writeJson(JsonGenerator generator, int size, IntFunction<String> symbolOf) throws IOException {
+        generator.writeStartObject();
+        try {
+            forEach(size, symbolOf, view -> {
+                try {
+                    generator.writeFieldName(view.symbol);
+                    view.writeJson(generator);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Copy a consistent record into the view (all but the symbol); false if the id has no price
+     */
+    private boolean read(int id, CurrentPriceView view) {
+        ByteBuffer[] current = pages;
+        int pageIndex = id / pageRecords;
+        if (id < 0 || pageIndex >= current.length) {
+            return false;
+        }
+        ByteBuffer page = current[pageIndex];
+        int offset = (id % pageRecords) * RECORD_BYTES;
+
+        while (true) {
+            long before = (long) LONGS.getAcquire(page, offset + SEQUENCE);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int flags = page.getInt(offset + FLAGS);
+            view.price = page.getDouble(offset + PRICE);
+            view.change = page.getDouble(offset + CHANGE);
+            view.changePercent = page.getDouble(offset + CHANGE_PERCENT);
+            view.epochSecond = page.getLong(offset + EPOCH_SECOND);
+            view.nanos = page.getInt(offset + NANOS);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(page, offset + SEQUENCE) == before) {
+                view.hasTimestamp = (flags & HAS_TIMESTAMP) != 0;
+                return (flags & PRESENT) != 0;
+            }
+        }
+    }
+
+    /**
+     * Claim a record for writing by moving its sequence from even to odd
+     */
+    private static long beginWrite(ByteBuffer page, int offset) {
+        while (true) {
+            long sequence = (long) LONGS.getVolatile(page, offset + SEQUENCE);
+            if ((sequence & 1) == 0 && LONGS.compareAndSet(page, offset + SEQUENCE, sequence, sequence + 1)) {
+                VarHandle.storeStoreFence();
+                return sequence + 1;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void endWrite(ByteBuffer page, int offset, long sequence) {
+        LONGS.setRelease(page, offset + SEQUENCE, sequence + 1);
+    }
+
+    private ByteBuffer pageForWrite(int id) {
+        int pageIndex = id / pageRecords;
+        ByteBuffer[] current = pages;
+        if (pageIndex < current.length) {
+            return current[pageIndex];
+        }
+        synchronized (this) {
+            current = pages;
+            if (pageIndex >= current.length) {
+                ByteBuffer[] grown = Arrays.copyOf(current, pageIndex + 1);
+                for (int i = current.length; i < grown.length; i++) {
+                    // allocateDirect memory is zeroed: every record starts empty with sequence 0
+                    grown[i] = ByteBuffer.allocateDirect(pageRecords * RECORD_BYTES).order(ByteOrder.nativeOrder());
+                }
+                pages = grown;
+                current = grown;
+            }
+            return current[pageIndex];
+        }
+    }
+}
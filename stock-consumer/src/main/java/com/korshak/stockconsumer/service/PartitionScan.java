@@ -0,0 +1,223 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Reads offset ranges of several partitions in parallel and merges them by record timestamp.
+ *
+ * Each partition gets its own consumer on a virtual thread; readers hand poll batches to
+ * the calling thread through small bounded queues, and the caller does a k-way merge with
+ * a priority queue over the batch heads. Memory is bounded by a few batches per partition.
+ * Once the merge has emitted {@code limit} records the readers are cancelled. If a reader
+ * fails, the merge stops and the failure is thrown, rather than returning a partial result.
+ */
+class PartitionScan {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionScan.class);
+    private static final int QUEUED_BATCHES = 4; // per partition
+    private static final List<Item> END = Collections.emptyList();
+
+    /**
+     * Offsets [fromOffset, toOffset) of one partition
+     */
+    record Range(TopicPartition partition, long fromOffset, long toOffset) {}
+
+    private final Supplier<Consumer<String, StockPrice>> consumers;
+    private final String symbol;
+    private final long stopAfterMillis;
+    private final Duration pollTimeout;
+    private final int maxEmptyPolls;
+
+    private volatile boolean cancelled;
+    private volatile Exception failure; // first reader failure
+
+    /**
+     * @param symbol record key to keep, or null for all records
+     * @param stopAfterMillis a partition's reader stops at the first record stamped after this
+     */
+    PartitionScan(Supplier<Consumer<String, StockPrice>> consumers, String symbol, long stopAfterMillis,
+                  Duration pollTimeout, int maxEmptyPolls) {
+        this.consumers = consumers;
+        this.symbol = symbol;
+        this.stopAfterMillis = stopAfterMillis;
+        this.pollTimeout = pollTimeout;
+        this.maxEmptyPolls = maxEmptyPolls;
+    }
+
+    /**
+     * Merge the ranges in timestamp order, drop the first {@code skip} matching records and
+     * pass at most {@code limit} of the rest to the action
+     *
+     * @throws IllegalStateException if a partition could not be read
+     */
+    void run(List<Range> ranges, long skip, long limit, Predicate<StockPrice> filter,
+             java.util.function.Consumer<StockPrice> action) {
+        long started = System.nanoTime();
+        List<Cursor> cursors = new ArrayList<>();
+
+        try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Range range : ranges) {
+                if (range.fromOffset() >= range.toOffset()) {
+                    continue;
+                }
+                Cursor cursor = new Cursor(range.partition().partition());
+                cursors.add(cursor);
+                readers.execute(() -> read(range, filter, cursor.queue));
+            }
+
+            try {
+                merge(cursors, skip, limit, action);
+            } finally {
+                cancelled = true; // readers still running stop at their next poll or hand-off
+            }
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException("Error scanning partitions for "
+                    + (symbol != null ? symbol : "all symbols"), failure);
+        }
+        logger.debug("Scanned {} partitions for {} in {} ms", cursors.size(),
+                symbol != null ? symbol : "all symbols", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void merge(List<Cursor> cursors, long skip, long limit, java.util.function.Consumer<StockPrice> action) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator
+                .comparingLong((Cursor cursor) -> cursor.head().timestamp())
+                .thenComparingInt(cursor -> cursor.partition));
+        for (Cursor cursor : cursors) {
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+
+        long emitted = 0;
+        while (!heads.isEmpty() && emitted < limit && failure == null) {
+            Cursor cursor = heads.poll();
+            if (skip > 0) {
+                skip--;
+            } else {
+                action.accept(cursor.head().value());
+                emitted++;
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * Reader for one partition: poll, filter, hand batches over, then signal the end
+     */
+    private void read(Range range, Predicate<StockPrice> filter, BlockingQueue<List<Item>> queue) {
+        TopicPartition partition = range.partition();
+        try (Consumer<String, StockPrice> consumer = consumers.get()) {
+            consumer.assign(Collections.singletonList(partition));
+            consumer.seek(partition, range.fromOffset());
+
+            int emptyPolls = 0;
+            boolean done = false;
+            while (!done && !cancelled && consumer.position(partition) < range.toOffset()
+                    && emptyPolls < maxEmptyPolls) {
+                ConsumerRecords<String, StockPrice> records = consumer.poll(pollTimeout);
+                if (records.isEmpty()) {
+                    emptyPolls++;
+                    continue;
+                }
+                emptyPolls = 0;
+
+                List<Item> batch = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, StockPrice> record : records.records(partition)) {
+                    if (record.offset() >= range.toOffset() || record.timestamp() > stopAfterMillis) {
+                        done = true;
+                        break;
+                    }
+                    StockPrice value = record.value();
+                    if (value != null && (symbol == null || symbol.equals(record.key())) && filter.test(value)) {
+                        batch.add(new Item(record.timestamp(), value));
+                    }
+                }
+                if (!batch.isEmpty() && !handOff(queue, batch)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            if (failure == null) {
+                failure = new IllegalStateException("Error scanning partition " + partition, e);
+            }
+        } finally {
+            handOff(queue, END);
+        }
+    }
+
+    /**
+     * Queue a batch for the merger, giving up if the scan was cancelled
+     */
+    private boolean handOff(BlockingQueue<List<Item>> queue, List<Item> batch) {
+        try {
+            while (!cancelled) {
+                if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private record Item(long timestamp, StockPrice value) {}
+
+    /**
+     * Merge-side view of one partition: the current batch and position in it
+     */
+    private static class Cursor {
+        private final int partition;
+        private final BlockingQueue<List<Item>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        private List<Item> batch = END;
+        private int index;
+
+        Cursor(int partition) {
+            this.partition = partition;
+        }
+
+        Item head() {
+            return batch.get(index);
+        }
+
+        /**
+         * Move to the next record, waiting for the reader if needed; false at the end
+         */
+        boolean advance() {
+            index++;
+            while (index >= batch.size()) {
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while merging partitions", e);
+                }
+                if (batch == END) {
+                    return false;
+                }
+                index = 0;
+            }
+            return true;
+        }
+    }
+}
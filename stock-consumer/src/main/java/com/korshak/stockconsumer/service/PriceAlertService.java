@@ -0,0 +1,304 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.AlertRule;
+import com.korshak.stockconsumer.model.AlertType;
+import com.korshak.stockconsumer.model.PriceAlert;
+import com.korshak.stockconsumer.model.StockPrice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Price alert engine evaluated on the ingestion path.
+ *
+ * Rules are stored per symbol in thresholds sorted maps (price crossings above/below, and
+ * percent move per window). A tick from p0 to p1 only looks at the thresholds between p0
+ * and p1 (a sub-map range query), so evaluation is O(log n + k) for n rules on the symbol
+ * and k rules fired, regardless of how many rules are registered. Percent move windows
+ * come from a small configured set, so a tick updates at most that many windows per symbol.
+ * Rules fire once.
+ * A symbol's first rule starts from the symbol's current price, so the next tick can fire it.
+ */
+@Service
+public class PriceAlertService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceAlertService.class);
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Value("${stock.alerts.max-rules}")
+    private int maxRules;
+
+    @Value("${stock.alerts.window-seconds}")
+    private Set<Integer> windowSeconds;
+
+    // Rule id -> rule
+    private final Map<String, AlertRule> rules = new ConcurrentHashMap<>();
+
+    // Symbol -> that symbol's threshold indexes
+    private final Map<String, SymbolAlerts> symbolAlerts = new ConcurrentHashMap<>();
+
+    // Registered rules, reserved before a rule is stored so the limit holds under concurrent adds
+    private final AtomicInteger ruleCount = new AtomicInteger();
+
+    private final AtomicLong firedCount = new AtomicLong();
+
+    /**
+     * Register a rule; returns the stored rule with its id
+     */
+    public AlertRule addRule(AlertRule rule) {
+        validate(rule);
+        if (ruleCount.incrementAndGet() > maxRules) {
+            ruleCount.decrementAndGet();
+            throw new IllegalStateException("Alert rule limit reached: " + maxRules);
+        }
+
+        rule.setId(UUID.randomUUID().toString());
+        rule.setSymbol(rule.getSymbol().toUpperCase());
+        rule.setCreatedAt(LocalDateTime.now(ZoneOffset.UTC));
+
+        SymbolAlerts alerts = symbolAlerts.computeIfAbsent(rule.getSymbol(), this::newSymbolAlerts);
+        rules.put(rule.getId(), rule);
+        alerts.add(rule);
+
+        logger.debug("Registered alert rule: {}", rule);
+        return rule;
+    }
+
+    /**
+     * Remove a rule; returns false if it does not exist (or already fired)
+     */
+    public boolean removeRule(String id) {
+        AlertRule rule = rules.remove(id);
+        if (rule == null) {
+            return false;
+        }
+        ruleCount.decrementAndGet();
+        SymbolAlerts alerts = symbolAlerts.get(rule.getSymbol());
+        if (alerts != null) {
+            alerts.remove(rule);
+        }
+        return true;
+    }
+
+    public AlertRule getRule(String id) {
+        return rules.get(id);
+    }
+
+    /**
+     * Get registered rules, optionally for one symbol
+     */
+    public List<AlertRule> getRules(String symbol) {
+        List<AlertRule> result = new ArrayList<>();
+        for (AlertRule rule : rules.values()) {
+            if (symbol == null || rule.getSymbol().equals(symbol)) {
+                result.add(rule);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluate a tick against its symbol's rules and return the alerts that fired
+     * (called on the Kafka listener thread)
+     */
+    public List<PriceAlert> evaluate(StockPrice stockPrice) {
+        SymbolAlerts alerts = symbolAlerts.get(stockPrice.getSymbol());
+        if (alerts == null) {
+            return Collections.emptyList();
+        }
+
+        List<PriceAlert> fired = alerts.evaluate(stockPrice);
+        for (PriceAlert alert : fired) {
+            if (rules.remove(alert.getRuleId()) != null) {
+                ruleCount.decrementAndGet();
+            }
+        }
+        if (!fired.isEmpty()) {
+            firedCount.addAndGet(fired.size());
+            logger.info("Fired {} alert(s) for {}", fired.size(), stockPrice.getSymbol());
+        }
+        return fired;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeRules", rules.size());
+        stats.put("symbolsWithRules", symbolAlerts.size());
+        stats.put("firedAlerts", firedCount.get());
+        stats.put("maxRules", maxRules);
+        return stats;
+    }
+
+    /**
+     * Threshold indexes for a symbol's first rule, starting from its current price if any
+     */
+    private SymbolAlerts newSymbolAlerts(String symbol) {
+        SymbolAlerts alerts = new SymbolAlerts();
+        StockPrice current = stockDataService.getCurrentPrice(symbol);
+        if (current != null) {
+            alerts.lastPrice = current.getPrice();
+        }
+        return alerts;
+    }
+
+    private void validate(AlertRule rule) {
+        if (rule.getSymbol() == null || rule.getSymbol().isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        if (rule.getType() == null) {
+            throw new IllegalArgumentException("type is required");
+        }
+        if (Double.isNaN(rule.getThreshold()) || Double.isInfinite(rule.getThreshold())) {
+            throw new IllegalArgumentException("threshold must be a number");
+        }
+        if (rule.getType() == AlertType.PERCENT_MOVE) {
+            if (rule.getThreshold() == 0) {
+                throw new IllegalArgumentException("threshold must be a non-zero percent");
+            }
+            if (!windowSeconds.contains(rule.getWindowSeconds())) {
+                throw new IllegalArgumentException("windowSeconds must be one of " + new TreeSet<>(windowSeconds));
+            }
+        } else if (rule.getThreshold() <= 0) {
+            throw new IllegalArgumentException("threshold must be a positive price");
+        }
+    }
+
+    /**
+     * Sorted threshold indexes for one symbol (guarded by the instance lock)
+     */
+    private static class SymbolAlerts {
+
+        private final TreeMap<Double, List<AlertRule>> crossAbove = new TreeMap<>();
+        private final TreeMap<Double, List<AlertRule>> crossBelow = new TreeMap<>();
+        private final Map<Integer, PercentMoveAlerts> percentMoves = new HashMap<>();
+        private Double lastPrice;
+
+        synchronized void add(AlertRule rule) {
+            switch (rule.getType()) {
+                case CROSS_ABOVE -> addTo(crossAbove, rule);
+                case CROSS_BELOW -> addTo(crossBelow, rule);
+                case PERCENT_MOVE -> addTo(percentMoves.computeIfAbsent(rule.getWindowSeconds(),
+                        seconds -> new PercentMoveAlerts(seconds * 1000L)).thresholds, rule);
+            }
+        }
+
+        synchronized void remove(AlertRule rule) {
+            switch (rule.getType()) {
+                case CROSS_ABOVE -> removeFrom(crossAbove, rule);
+                case CROSS_BELOW -> removeFrom(crossBelow, rule);
+                case PERCENT_MOVE -> {
+                    PercentMoveAlerts moveAlerts = percentMoves.get(rule.getWindowSeconds());
+                    if (moveAlerts != null) {
+                        removeFrom(moveAlerts.thresholds, rule);
+                        if (moveAlerts.thresholds.isEmpty()) {
+                            percentMoves.remove(rule.getWindowSeconds());
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized List<PriceAlert> evaluate(StockPrice stockPrice) {
+            double price = stockPrice.getPrice();
+            Double previous = lastPrice;
+            lastPrice = price;
+
+            List<PriceAlert> fired = new ArrayList<>();
+            LocalDateTime timestamp = stockPrice.getTimestamp() != null ? stockPrice.getTimestamp() : LocalDateTime.now(ZoneOffset.UTC);
+
+            if (previous != null && price > previous) {
+                // Thresholds in (previous, price] were crossed upwards
+                fire(crossAbove.subMap(previous, false, price, true), price, previous, 0, timestamp, fired);
+            } else if (previous != null && price < previous) {
+                // Thresholds in [price, previous) were crossed downwards
+                fire(crossBelow.subMap(price, true, previous, false), price, previous, 0, timestamp, fired);
+            }
+
+            if (!percentMoves.isEmpty()) {
+                long timeMillis = timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+                for (PercentMoveAlerts moveAlerts : percentMoves.values()) {
+                    moveAlerts.evaluate(timeMillis, price, previous != null ? previous : price, timestamp, fired);
+                }
+                percentMoves.values().removeIf(moveAlerts -> moveAlerts.thresholds.isEmpty());
+            }
+            return fired;
+        }
+
+        private static void addTo(TreeMap<Double, List<AlertRule>> index, AlertRule rule) {
+            index.computeIfAbsent(rule.getThreshold(), k -> new ArrayList<>(1)).add(rule);
+        }
+
+        private static void removeFrom(TreeMap<Double, List<AlertRule>> index, AlertRule rule) {
+            List<AlertRule> atThreshold = index.get(rule.getThreshold());
+            if (atThreshold != null) {
+                atThreshold.removeIf(candidate -> candidate.getId().equals(rule.getId()));
+                if (atThreshold.isEmpty()) {
+                    index.remove(rule.getThreshold());
+                }
+            }
+        }
+
+        /**
+         * Fire and remove every rule in the crossed threshold range
+         */
+        private static void fire(NavigableMap<Double, List<AlertRule>> crossed, double price, double previous,
+                                 double changePercent, LocalDateTime timestamp, List<PriceAlert> fired) {
+            if (crossed.isEmpty()) {
+                return;
+            }
+            for (List<AlertRule> atThreshold : crossed.values()) {
+                for (AlertRule rule : atThreshold) {
+                    fired.add(new PriceAlert(rule, price, previous, changePercent, timestamp));
+                }
+            }
+            crossed.clear(); // removes the fired thresholds from the backing index
+        }
+    }
+
+    /**
+     * Percent move rules for one symbol and window, indexed by signed percent threshold.
+     * The move over the window is compared with the previous tick's move, so a rule
+     * fires when the move crosses its threshold.
+     */
+    private static class PercentMoveAlerts {
+
+        private final PriceWindow window;
+        private final TreeMap<Double, List<AlertRule>> thresholds = new TreeMap<>();
+        private double lastMove;
+
+        PercentMoveAlerts(long windowMillis) {
+            this.window = new PriceWindow(windowMillis);
+        }
+
+        void evaluate(long timeMillis, double price, double previous, LocalDateTime timestamp, List<PriceAlert> fired) {
+            double referencePrice = window.update(timeMillis, price);
+            double move = referencePrice != 0 ? (price - referencePrice) / referencePrice * 100 : 0;
+
+            if (move > lastMove) {
+                // Rising: positive thresholds in (lastMove, move]
+                double from = Math.max(lastMove, 0);
+                if (move > from) {
+                    SymbolAlerts.fire(thresholds.subMap(from, false, move, true), price, previous, move, timestamp, fired);
+                }
+            } else if (move < lastMove) {
+                // Falling: negative thresholds in [move, lastMove)
+                double to = Math.min(lastMove, 0);
+                if (move < to) {
+                    SymbolAlerts.fire(thresholds.subMap(move, true, to, false), price, previous, move, timestamp, fired);
+                }
+            }
+            lastMove = move;
+        }
+    }
+}
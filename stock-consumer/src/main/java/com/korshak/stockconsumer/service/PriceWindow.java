@@ -0,0 +1,37 @@
+package com.korshak.stockconsumer.service;
+
+import java.util.ArrayDeque;
+
+/**
+ * Sliding window over one symbol's ticks that yields the window's reference price: the
+ * last tick at or before (now - window), or the oldest tick seen while the window is not
+ * yet full. Timestamps only move forward, so each update is amortized O(1).
+ */
+class PriceWindow {
+
+    private final long windowMillis;
+    private final ArrayDeque<Point> points = new ArrayDeque<>();
+
+    PriceWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Add a tick and return the reference price for the window ending at it
+     */
+    synchronized double update(long timeMillis, double price) {
+        points.addLast(new Point(timeMillis, price));
+
+        long windowStart = timeMillis - windowMillis;
+        while (points.size() > 1) {
+            Point first = points.pollFirst();
+            if (points.peekFirst().timeMillis() > windowStart) {
+                points.addFirst(first); // first is the latest tick at or before the window start
+                break;
+            }
+        }
+        return points.peekFirst().price();
+    }
+
+    private record Point(long timeMillis, double price) {}
+}
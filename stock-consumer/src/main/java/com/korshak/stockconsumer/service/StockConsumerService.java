@@ -1,14 +1,17 @@
 package com.korshak.stockconsumer.service;
 
-import com.korshak.stockconsumer.controller.StockStreamController;
+import com.korshak.stockconsumer.model.PriceAlert;
 import com.korshak.stockconsumer.model.StockPrice;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Kafka Consumer Service that consumes stock prices and broadcasts them via WebSocket and SSE
  */
@@ -20,29 +23,60 @@ public class StockConsumerService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Value("${websocket.topic.stock-updates}")
+    private String stockUpdatesTopic;
+
     @Autowired
     private StockDataService stockDataService;
 
     @Autowired
-    private StockStreamController stockStreamController;
+    private StockStreamPublisher stockStreamPublisher;
+
+    @Autowired
+    private BackpressureController backpressureController;
+
+    @Value("${websocket.topic.alerts}")
+    private String alertsTopic;
+
+    @Autowired
+    private PriceAlertService priceAlertService;
+
+    @Autowired
+    private AlertPublisher alertPublisher;
 
     /**
      * Consume messages from stock-prices topic
      */
-    @KafkaListener(topics = "${stock.consumer.topic}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(id = "${stock.consumer.listener-id}", topics = "${stock.consumer.topic}",
+                   groupId = "${spring.kafka.consumer.group-id}")
     public void consumeStockPrice(StockPrice stockPrice) {
         try {
             logger.info("Consumed stock price: {}", stockPrice);
 
             // Store the stock price data
-            stockDataService.addStockPrice(stockPrice);
+            long sequence = stockDataService.addStockPrice(stockPrice);
+            if (sequence < 0) {
+                return; // older than what was already stored for the symbol
+            }
+
+            // Evaluate alert rules against this tick and push whatever fired
+            List<PriceAlert> alerts = priceAlertService.evaluate(stockPrice);
+            if (!alerts.isEmpty()) {
+                for (PriceAlert alert : alerts) {
+                    messagingTemplate.convertAndSend(alertsTopic, alert);
+                }
+                alertPublisher.publishAlerts(alerts);
+            }
+
+            long broadcastStart = System.nanoTime();
 
-            // Broadcast to WebSocket subscribers
-            messagingTemplate.convertAndSend("/topic/stock-updates", stockPrice);
-            messagingTemplate.convertAndSend("/topic/stock-updates/" + stockPrice.getSymbol(), stockPrice);
+            // Broadcast to WebSocket subscribers (published once; the symbol-indexed registry
+            // delivers it to all-symbol and matching symbol subscriptions)
+            messagingTemplate.convertAndSend(stockUpdatesTopic + "/" + stockPrice.getSymbol(), stockPrice);
 
             // Broadcast to SSE subscribers
-            stockStreamController.broadcastStockPrice(stockPrice);
+            stockStreamPublisher.broadcastStockPrice(stockPrice, sequence);
+            backpressureController.recordBroadcast(System.nanoTime() - broadcastStart);
 
             logger.debug("Broadcasted stock price via WebSocket and SSE: {}", stockPrice.getSymbol());
 
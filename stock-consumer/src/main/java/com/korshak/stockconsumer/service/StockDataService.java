@@ -1,14 +1,24 @@
 package com.korshak.stockconsumer.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.korshak.stockconsumer.history.Downsampler;
+import com.korshak.stockconsumer.history.TickHistory;
 import com.korshak.stockconsumer.model.StockPrice;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Service for managing stock price data storage and retrieval
@@ -18,90 +28,331 @@ import java.util.stream.Collectors;
 public class StockDataService {
 
     private static final Logger logger = LoggerFactory.getLogger(StockDataService.class);
-    private static final int MAX_HISTORY_SIZE = 1000; // Keep last 1000 records per symbol
 
-    // In-memory storage: Symbol -> List of StockPrices
-    private final Map<String, List<StockPrice>> stockHistory = new ConcurrentHashMap<>();
+    @Autowired
+    private SymbolIndex symbolIndex;
+
+    @Value("${stock.history.block-size}")
+    private int historyBlockSize;
+
+    @Value("${stock.history.retention-hours}")
+    private long historyRetentionHours;
+
+    @Value("${stock.stream.replay-buffer-size}")
+    private int replayBufferSize;
+
+    @Value("${stock.prices.page-records}")
+    private int pricePageRecords;
+
+    // In-memory storage: Symbol -> tiered history (hot tail + compressed blocks)
+    private final Map<String, TickHistory> stockHistory = new ConcurrentHashMap<>();
     
-    // Current prices: Symbol -> Latest StockPrice
-    private final Map<String, StockPrice> currentPrices = new ConcurrentHashMap<>();
+    // Current prices: symbol id -> latest price, off-heap
+    private OffHeapPriceTable currentPrices;
+
+    // Bumped on every change (any tick), and when the set of symbols changes; used to tag
+    // cached snapshot responses
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final AtomicLong symbolsVersion = new AtomicLong();
+
+    // Global tick sequence (SSE event ids) and the most recent ticks by sequence, for resuming
+    // streams. Sequences start at the startup time in microseconds, so ids from a previous run
+    // are always older than anything in this run's buffer. Written under sequenceLock (a
+    // ReentrantLock, so a virtual-thread listener is not pinned), read without it.
+    private final ReentrantLock sequenceLock = new ReentrantLock();
+    private volatile long lastSequence = System.currentTimeMillis() * 1000;
+    private AtomicReferenceArray<SequencedTick> replayBuffer;
+
+    // Top movers: first price of the session, sliding windows and rankings per window
+    private final Map<String, Double> sessionOpenPrices = new ConcurrentHashMap<>();
+    private final Map<String, PriceWindow[]> moverWindows = new ConcurrentHashMap<>();
+    private final Map<MoverWindow, MoversLeaderboard> leaderboards = new EnumMap<>(MoverWindow.class);
+
+    // Newest tick time seen for any symbol: the clock that windowed movers entries age against
+    private final AtomicLong latestTickMillis = new AtomicLong();
+
+    // Newest tick time per symbol (epoch millis). The producer may move a symbol to another
+    // partition, and the two partitions are not read in lockstep, so a tick still queued on
+    // the old partition can arrive after newer ones from the new partition; those are dropped.
+    private final Map<String, AtomicLong> lastTickMillis = new ConcurrentHashMap<>();
+    private final AtomicLong staleTicks = new AtomicLong();
+
+    public StockDataService() {
+        for (MoverWindow window : MoverWindow.values()) {
+            leaderboards.put(window, new MoversLeaderboard());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        replayBuffer = new AtomicReferenceArray<>(replayBufferSize);
+        currentPrices = new OffHeapPriceTable(pricePageRecords);
+    }
 
     /**
      * Add a new stock price update
+     * Returns the tick's sequence number, or -1 if the tick is older than the symbol's
+     * latest stored tick and was dropped
      */
-    public void addStockPrice(StockPrice stockPrice) {
+    public long addStockPrice(StockPrice stockPrice) {
         String symbol = stockPrice.getSymbol();
+
+        if (stockPrice.getTimestamp() != null) {
+            long timeMillis = toEpochMillis(stockPrice.getTimestamp());
+            long newest = lastTickMillis.computeIfAbsent(symbol, k -> new AtomicLong(Long.MIN_VALUE))
+                    .getAndAccumulate(timeMillis, Math::max);
+            if (timeMillis < newest) {
+                staleTicks.incrementAndGet();
+                logger.debug("Dropped out-of-order tick for {} at {}", symbol, stockPrice.getTimestamp());
+                return -1;
+            }
+        }
         
         // Update current price
-        currentPrices.put(symbol, stockPrice);
+        if (currentPrices.put(symbolIndex.idOf(symbol), stockPrice)) {
+            symbolsVersion.incrementAndGet();
+        }
         
-        // Add to history
-        stockHistory.computeIfAbsent(symbol, k -> Collections.synchronizedList(new ArrayList<>()))
+        // Add to history (sealed into compressed blocks as the hot tail fills up)
+        stockHistory.computeIfAbsent(symbol,
+                k -> new TickHistory(k, historyBlockSize, historyRetentionHours * 3_600_000L))
                    .add(stockPrice);
         
-        // Trim history if needed
-        List<StockPrice> history = stockHistory.get(symbol);
-        if (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0); // Remove oldest
+        updateMovers(stockPrice);
+        dataVersion.incrementAndGet();
+
+        // Published last, so a sequence is only visible once the tick is fully stored
+        long sequence;
+        sequenceLock.lock();
+        try {
+            sequence = lastSequence + 1;
+            replayBuffer.set((int) (sequence % replayBuffer.length()), new SequencedTick(sequence, stockPrice));
+            lastSequence = sequence;
+        } finally {
+            sequenceLock.unlock();
         }
         
         logger.debug("Added stock price for {}: {}", symbol, stockPrice.getPrice());
+        return sequence;
+    }
+
+    /**
+     * Sequence number of the latest stored tick
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Ticks stored after the given sequence, oldest first, or null if they cannot all be
+     * served: some were already overwritten in the replay buffer, there are more than
+     * maxTicks of them, or the sequence is not from this run
+     */
+    public List<SequencedTick> getTicksSince(long sequence, int maxTicks) {
+        long last = lastSequence;
+        if (sequence > last || last - sequence > Math.min(maxTicks, replayBuffer.length())) {
+            return null;
+        }
+
+        List<SequencedTick> ticks = new ArrayList<>((int) (last - sequence));
+        for (long next = sequence + 1; next <= last; next++) {
+            SequencedTick tick = replayBuffer.get((int) (next % replayBuffer.length()));
+            if (tick == null || tick.sequence() != next) {
+                return null; // overwritten while reading, or cleared
+            }
+            ticks.add(tick);
+        }
+        return ticks;
+    }
+
+    /**
+     * Update every movers window with the tick (O(log n) per window)
+     */
+    private void updateMovers(StockPrice stockPrice) {
+        String symbol = stockPrice.getSymbol();
+        double price = stockPrice.getPrice();
+        long timeMillis = toEpochMillis(stockPrice.getTimestamp());
+        latestTickMillis.accumulateAndGet(timeMillis, Math::max);
+
+        PriceWindow[] windows = moverWindows.computeIfAbsent(symbol, k -> {
+            MoverWindow[] moverWindowTypes = MoverWindow.values();
+            PriceWindow[] created = new PriceWindow[moverWindowTypes.length];
+            for (MoverWindow window : moverWindowTypes) {
+                if (window != MoverWindow.SESSION) {
+                    created[window.ordinal()] = new PriceWindow(window.getMillis());
+                }
+            }
+            return created;
+        });
+
+        for (MoverWindow window : MoverWindow.values()) {
+            double referencePrice = window == MoverWindow.SESSION
+                    ? sessionOpenPrices.computeIfAbsent(symbol, k -> price)
+                    : windows[window.ordinal()].update(timeMillis, price);
+            double change = price - referencePrice;
+            double changePercent = referencePrice != 0 ? change / referencePrice * 100 : 0;
+            leaderboards.get(window).update(symbol, price, change, changePercent, timeMillis);
+        }
+    }
+
+    /**
+     * Drop 1m/5m movers entries whose last tick is older than the window, measured against
+     * the newest tick of any symbol: a symbol that stopped trading has no change over the
+     * window any more. If every symbol stops, the leaderboards stay as of the last tick.
+     */
+    public void evictStaleMovers() {
+        long now = latestTickMillis.get();
+        int evicted = 0;
+        for (MoverWindow window : MoverWindow.values()) {
+            if (window != MoverWindow.SESSION) {
+                evicted += leaderboards.get(window).evictOlderThan(now - window.getMillis());
+            }
+        }
+        if (evicted > 0) {
+            dataVersion.incrementAndGet();
+            logger.debug("Evicted {} stale movers entries", evicted);
+        }
+    }
+
+    /**
+     * Get top gainers or losers over a window, by percent or absolute change
+     */
+    public List<MoversLeaderboard.Mover> getTopMovers(MoverWindow window, boolean byPercent, boolean gainers, int limit) {
+        return leaderboards.get(window).top(limit, byPercent, gainers);
+    }
+
+    /**
+     * Version of the stored data; changes whenever a tick is added or data is cleared
+     */
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Version of the symbol set; changes only when a new symbol appears or data is cleared
+     */
+    public long getSymbolsVersion() {
+        return symbolsVersion.get();
     }
 
     /**
      * Get current price for a symbol
      */
     public StockPrice getCurrentPrice(String symbol) {
-        return currentPrices.get(symbol);
+        int id = symbolIndex.find(symbol);
+        return id >= 0 ? currentPrices.get(id, symbol) : null;
     }
 
     /**
      * Get all current prices
      */
     public Map<String, StockPrice> getAllCurrentPrices() {
-        return new HashMap<>(currentPrices);
+        Map<String, StockPrice> prices = new HashMap<>();
+        forEachCurrentPrice(price -> prices.put(price.getSymbol(), price.toStockPrice()));
+        return prices;
+    }
+
+    /**
+     * Visit every current price straight from the off-heap table; the view is reused
+     * between symbols and only valid inside the callback
+     */
+    public void forEachCurrentPrice(java.util.function.Consumer<CurrentPriceView> action) {
+        currentPrices.forEach(symbolIndex.size(), symbolIndex::symbolOf, action);
+    }
+
+    /**
+     * Write all current prices as a JSON object of symbol -> price, straight from the
+     * off-heap table
+     */
+    public void writeCurrentPricesJson(JsonGenerator generator) throws IOException {
+        currentPrices.writeJson(generator, symbolIndex.size(), symbolIndex::symbolOf);
     }
 
     /**
      * Get historical prices for a symbol
      */
     public List<StockPrice> getHistory(String symbol) {
-        List<StockPrice> history = stockHistory.get(symbol);
-        return history != null ? new ArrayList<>(history) : new ArrayList<>();
+        List<StockPrice> result = new ArrayList<>();
+        TickHistory history = stockHistory.get(symbol);
+        if (history != null) {
+            history.forEach(result::add);
+        }
+        return result;
     }
 
     /**
      * Get recent history for a symbol (last N records)
      */
     public List<StockPrice> getRecentHistory(String symbol, int limit) {
-        List<StockPrice> history = stockHistory.get(symbol);
-        if (history == null || history.isEmpty()) {
+        List<StockPrice> result = new ArrayList<>();
+        forEachRecent(symbol, limit, result::add);
+        return result;
+    }
+
+    /**
+     * Get recent history reduced to at most maxPoints ticks for charting
+     */
+    public List<StockPrice> getRecentHistory(String symbol, int limit, int maxPoints, Downsampler.Mode mode) {
+        TickHistory history = stockHistory.get(symbol);
+        if (history == null) {
             return new ArrayList<>();
         }
-        
-        int fromIndex = Math.max(0, history.size() - limit);
-        return new ArrayList<>(history.subList(fromIndex, history.size()));
+        Downsampler downsampler = Downsampler.create(mode, Math.min(limit, history.size()), maxPoints);
+        history.forEachRecent(limit, downsampler);
+        return downsampler.finish();
     }
 
     /**
-     * Get history within time range
+     * Get history within time range reduced to at most maxPoints ticks for charting
      */
-    public List<StockPrice> getHistoryInRange(String symbol, LocalDateTime from, LocalDateTime to) {
-        List<StockPrice> history = stockHistory.get(symbol);
+    public List<StockPrice> getHistoryInRange(String symbol, LocalDateTime from, LocalDateTime to,
+                                              int maxPoints, Downsampler.Mode mode) {
+        TickHistory history = stockHistory.get(symbol);
         if (history == null) {
             return new ArrayList<>();
         }
+        Downsampler downsampler = Downsampler.create(mode, history.countInRange(from, to), maxPoints);
+        history.forEachInRange(from, to, downsampler);
+        return downsampler.finish();
+    }
+
+    /**
+     * Stream the last N records for a symbol, oldest first, without building a list
+     */
+    public void forEachRecent(String symbol, int limit, java.util.function.Consumer<StockPrice> action) {
+        TickHistory history = stockHistory.get(symbol);
+        if (history != null) {
+            history.forEachRecent(limit, action);
+        }
+    }
 
-        return history.stream()
-                .filter(sp -> sp.getTimestamp().isAfter(from) && sp.getTimestamp().isBefore(to))
-                .collect(Collectors.toList());
+    /**
+     * Stream history within time range, oldest first, without building a list
+     */
+    public void forEachInRange(String symbol, LocalDateTime from, LocalDateTime to,
+                               java.util.function.Consumer<StockPrice> action) {
+        TickHistory history = stockHistory.get(symbol);
+        if (history != null) {
+            history.forEachInRange(from, to, action);
+        }
+    }
+
+    /**
+     * Get history within time range
+     */
+    public List<StockPrice> getHistoryInRange(String symbol, LocalDateTime from, LocalDateTime to) {
+        List<StockPrice> result = new ArrayList<>();
+        forEachInRange(symbol, from, to, result::add);
+        return result;
     }
 
     /**
      * Get all available symbols
      */
     public Set<String> getAvailableSymbols() {
-        return new HashSet<>(currentPrices.keySet());
+        Set<String> symbols = new HashSet<>();
+        forEachCurrentPrice(price -> symbols.add(price.getSymbol()));
+        return symbols;
     }
 
     /**
@@ -110,17 +361,43 @@ public class StockDataService {
     public Map<String, Object> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalSymbols", currentPrices.size());
-        stats.put("totalMessages", stockHistory.values().stream().mapToInt(List::size).sum());
+        stats.put("currentPricesOffHeapBytes", currentPrices.getOffHeapBytes());
+        stats.put("totalMessages", stockHistory.values().stream().mapToInt(TickHistory::size).sum());
+        stats.put("historyBlocks", stockHistory.values().stream().mapToInt(TickHistory::getBlockCount).sum());
+        stats.put("historyCompressedBytes", stockHistory.values().stream().mapToLong(TickHistory::getCompressedBytes).sum());
+        stats.put("historyHotTicks", stockHistory.values().stream().mapToInt(TickHistory::getHotSize).sum());
+        stats.put("staleTicksDropped", staleTicks.get());
         stats.put("symbols", getAvailableSymbols());
         return stats;
     }
 
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp != null
+                ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli()
+                : System.currentTimeMillis();
+    }
+
     /**
      * Clear all data (useful for testing)
      */
     public void clearAll() {
         stockHistory.clear();
         currentPrices.clear();
+        sessionOpenPrices.clear();
+        moverWindows.clear();
+        lastTickMillis.clear();
+        latestTickMillis.set(0);
+        leaderboards.values().forEach(MoversLeaderboard::clear);
+        dataVersion.incrementAndGet();
+        symbolsVersion.incrementAndGet();
+        for (int i = 0; i < replayBuffer.length(); i++) {
+            replayBuffer.set(i, null);
+        }
         logger.info("Cleared all stock data");
     }
+
+    /**
+     * A stored tick with its sequence number
+     */
+    public record SequencedTick(long sequence, StockPrice stockPrice) {}
 }
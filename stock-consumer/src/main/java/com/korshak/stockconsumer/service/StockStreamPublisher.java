@@ -0,0 +1,22 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+
+/**
+ * Outbound SSE stream fed by {@link StockConsumerService}.
+ * Implemented by the servlet (SseEmitter) and reactive (Flux) stream controllers;
+ * which one is active is selected with stock.stream.mode.
+ */
+public interface StockStreamPublisher {
+
+    /**
+     * Broadcast stock price to all relevant SSE clients
+     * The sequence becomes the SSE event id, which clients send back as Last-Event-ID
+     */
+    void broadcastStockPrice(StockPrice stockPrice, long sequence);
+
+    /**
+     * Number of events queued for clients but not yet written
+     */
+    long getPendingEvents();
+}
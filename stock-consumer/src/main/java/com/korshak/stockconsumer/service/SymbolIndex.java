@@ -0,0 +1,67 @@
+package com.korshak.stockconsumer.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns stock symbols to dense integer ids (0, 1, 2, ...) so per-symbol state can be
+ * kept in arrays and bitsets instead of string-keyed maps. Ids are never reused.
+ * Only ingest assigns ids (StockDataService); request paths look symbols up with find(),
+ * so clients cannot grow the index with symbols that never trade.
+ */
+@Component
+public class SymbolIndex {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[64];
+    private int size;
+
+    /**
+     * Get the id of a symbol, assigning the next id if it has not been seen before
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id == null) {
+                if (size == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, size * 2);
+                }
+                id = size;
+                symbols[id] = symbol;
+                size++;
+                ids.put(symbol, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Get the id of a known symbol, or -1
+     */
+    public int find(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Get the symbol for an id, or null
+     */
+    public String symbolOf(int id) {
+        String[] current = symbols;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Number of symbols seen so far (ids are 0 .. size-1)
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,361 @@
+package com.korshak.stockconsumer;
+
+import com.korshak.stockconsumer.controller.ReactiveStockStreamController;
+import com.korshak.stockconsumer.model.StockPrice;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.Disposable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load and latency test: embedded Kafka broker -> consumer listener ->
+ * in-process SSE subscribers (reactive stream mode) and STOMP sessions on the simple broker.
+ *
+ * Ticks are produced at a fixed rate; each tick's price carries its id, so every subscriber
+ * can look up when it was sent. Reports sustained ticks/sec, end-to-end p50/p99/p999
+ * latency and heap growth, and fails if they regress past the perf.* thresholds.
+ * Heap is read without forcing a GC: the lowest used heap seen over a settle period, taken
+ * before the subscribers connect and again after the run, so the growth between the two
+ * does not depend on when System.gc() happens to collect.
+ * -Dperf.virtual-threads=true runs the consumer on virtual threads; the thread count and heap
+ * per subscriber are logged, so runs in both modes can be compared.
+ * Run with: mvn test -Pperf (thresholds and load can be overridden with -Dperf.*)
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "stock.stream.mode=reactive",
+        "spring.threads.virtual.enabled=${perf.virtual-threads:false}",
+        "logging.level.com.korshak.stockconsumer=WARN",
+        "logging.level.com.korshak.stockconsumer.StockPipelinePerfTest=INFO",
+        "logging.level.org.springframework.web.socket=WARN",
+        "logging.level.org.springframework.kafka=WARN"
+})
+@EmbeddedKafka(partitions = StockPipelinePerfTest.PARTITIONS, topics = "${stock.consumer.topic}")
+class StockPipelinePerfTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockPipelinePerfTest.class);
+    static final int PARTITIONS = 3;
+
+    @Value("${perf.rate:1000}")
+    private int rate;
+
+    @Value("${perf.duration-seconds:20}")
+    private int durationSeconds;
+
+    @Value("${perf.warmup-seconds:5}")
+    private int warmupSeconds;
+
+    @Value("${perf.symbols:100}")
+    private int symbolCount;
+
+    @Value("${perf.sse-clients:2000}")
+    private int sseClients;
+
+    @Value("${perf.stomp-clients:1000}")
+    private int stompClients;
+
+    @Value("${perf.watchlist-size:5}")
+    private int watchlistSize;
+
+    @Value("${perf.min-throughput-ratio:0.95}")
+    private double minThroughputRatio;
+
+    @Value("${perf.max-p99-ms:250}")
+    private double maxP99Millis;
+
+    @Value("${perf.max-p999-ms:1000}")
+    private double maxP999Millis;
+
+    @Value("${perf.max-heap-growth-mb:256}")
+    private long maxHeapGrowthMb;
+
+    @Value("${perf.heap-settle-seconds:2}")
+    private int heapSettleSeconds;
+
+    @Value("${spring.threads.virtual.enabled}")
+    private boolean virtualThreads;
+
+    @Value("${stock.consumer.topic}")
+    private String topic;
+
+    @Value("${stock.consumer.listener-id}")
+    private String listenerId;
+
+    @Value("${websocket.topic.stock-updates}")
+    private String stockUpdatesTopic;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private ReactiveStockStreamController streamController;
+
+    @Autowired
+    private SimpleBrokerMessageHandler simpleBroker;
+
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private SubscribableChannel clientOutboundChannel;
+
+    @Test
+    void sustainsRateWithinLatencyBudget() throws Exception {
+        ContainerTestUtils.waitForAssignment(listenerRegistry.getListenerContainer(listenerId), PARTITIONS);
+        long heapBeforeBytes = settledHeapBytes();
+        long heapBeforeMb = heapBeforeBytes / (1024 * 1024);
+
+        int totalTicks = rate * (warmupSeconds + durationSeconds);
+        int warmupTicks = rate * warmupSeconds;
+        AtomicLongArray sentAt = new AtomicLongArray(totalTicks + 1);
+        LatencyHistogram sseLatency = new LatencyHistogram();
+        LatencyHistogram stompLatency = new LatencyHistogram();
+        String[] symbols = new String[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = "SYM" + i;
+        }
+
+        // Probe: one all-symbols SSE client that must see every measured tick
+        AtomicLong probeReceived = new AtomicLong();
+        AtomicLong lastProbeReceiveNanos = new AtomicLong();
+        List<Disposable> subscriptions = new ArrayList<>();
+        subscriptions.add(streamController.streamAllStocks(null, null, null).subscribe(event -> {
+            long id = tickId(event.data());
+            if (id > warmupTicks) {
+                probeReceived.incrementAndGet();
+                lastProbeReceiveNanos.set(System.nanoTime());
+            }
+        }));
+
+        // SSE clients with watchlists spread over the symbols
+        for (int c = 0; c < sseClients; c++) {
+            StringBuilder watchlist = new StringBuilder();
+            for (int s = 0; s < watchlistSize; s++) {
+                watchlist.append(symbols[(c * watchlistSize + s) % symbolCount]).append(',');
+            }
+            subscriptions.add(streamController.streamAllStocks(watchlist.toString(), null, null)
+                    .subscribe(event -> record(event.data(), warmupTicks, sentAt, sseLatency)));
+        }
+
+        // STOMP sessions, one symbol topic each, connected and subscribed straight on the broker
+        // (it only delivers to sessions it has seen a CONNECT for)
+        for (int c = 0; c < stompClients; c++) {
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId("perf-" + c);
+            connect.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] {0, 0});
+            simpleBroker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId("perf-" + c);
+            subscribe.setSubscriptionId("sub-" + c);
+            subscribe.setDestination(stockUpdatesTopic + "/" + symbols[c % symbolCount]);
+            simpleBroker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+        clientOutboundChannel.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                record(payload(message), warmupTicks, sentAt, stompLatency);
+            }
+        });
+        long heapConnectedBytes = settledHeapBytes();
+
+        DefaultKafkaProducerFactory<String, StockPrice> producerFactory = producerFactory();
+        KafkaTemplate<String, StockPrice> producer = new KafkaTemplate<>(producerFactory);
+        long started = System.nanoTime();
+        long measureStarted = 0;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (int id = 1; id <= totalTicks; id++) {
+            long due = started + id * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (id == warmupTicks + 1) {
+                measureStarted = System.nanoTime();
+            }
+            String symbol = symbols[id % symbolCount];
+            sentAt.set(id, System.nanoTime());
+            producer.send(topic, symbol, new StockPrice(symbol, id, 0, 0, LocalDateTime.now(ZoneOffset.UTC)));
+        }
+        producer.flush();
+
+        int measuredTicks = totalTicks - warmupTicks;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (probeReceived.get() < measuredTicks && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        subscriptions.forEach(Disposable::dispose);
+        producerFactory.destroy();
+
+        double elapsedSeconds = (lastProbeReceiveNanos.get() - measureStarted) / 1e9;
+        double throughput = elapsedSeconds > 0 ? probeReceived.get() / elapsedSeconds : 0;
+        long heapPeakMb = peakHeapMb();
+        long heapAfterMb = settledHeapMb();
+        long heapGrowthMb = heapAfterMb - heapBeforeMb;
+
+        logger.info("Perf: rate={}/s symbols={} sseClients={} stompClients={}",
+                rate, symbolCount, sseClients, stompClients);
+        logger.info("Perf: sustained {} ticks/s ({} of {} measured ticks delivered)",
+                String.format("%.0f", throughput), probeReceived.get(), measuredTicks);
+        logger.info("Perf: SSE   {}", sseLatency.summary());
+        logger.info("Perf: STOMP {}", stompLatency.summary());
+        logger.info("Perf: settled heap {} MB before, {} MB after (growth {} MB), peak {} MB",
+                heapBeforeMb, heapAfterMb, heapGrowthMb, heapPeakMb);
+        logger.info("Perf: {} threads, {} platform threads at peak, {} KB settled heap per subscriber",
+                virtualThreads ? "virtual" : "platform", ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                (heapConnectedBytes - heapBeforeBytes) / 1024 / (sseClients + stompClients + 1));
+
+        assertThat(probeReceived.get()).as("measured ticks delivered").isEqualTo(measuredTicks);
+        if (sseClients > 0) {
+            assertThat(sseLatency.count()).as("SSE watchlist deliveries").isPositive();
+        }
+        if (stompClients > 0) {
+            assertThat(stompLatency.count()).as("STOMP deliveries").isPositive();
+        }
+        assertThat(throughput).as("sustained ticks/s").isGreaterThanOrEqualTo(rate * minThroughputRatio);
+        assertThat(sseLatency.percentileMillis(0.99)).as("SSE p99 ms").isLessThanOrEqualTo(maxP99Millis);
+        assertThat(sseLatency.percentileMillis(0.999)).as("SSE p999 ms").isLessThanOrEqualTo(maxP999Millis);
+        assertThat(stompLatency.percentileMillis(0.99)).as("STOMP p99 ms").isLessThanOrEqualTo(maxP99Millis);
+        assertThat(stompLatency.percentileMillis(0.999)).as("STOMP p999 ms").isLessThanOrEqualTo(maxP999Millis);
+        assertThat(heapGrowthMb).as("settled heap growth (MB)").isLessThanOrEqualTo(maxHeapGrowthMb);
+    }
+
+    private DefaultKafkaProducerFactory<String, StockPrice> producerFactory() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    private static void record(String json, int warmupTicks, AtomicLongArray sentAt, LatencyHistogram histogram) {
+        long id = tickId(json);
+        if (id > warmupTicks && id < sentAt.length()) {
+            histogram.record(System.nanoTime() - sentAt.get((int) id));
+        }
+    }
+
+    /**
+     * The tick id, carried as the price ("price":1234.0)
+     */
+    private static long tickId(String json) {
+        int start = json.indexOf("\"price\":");
+        if (start < 0) {
+            return -1;
+        }
+        start += 8;
+        int end = start;
+        while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') {
+            end++;
+        }
+        return (long) Double.parseDouble(json.substring(start, end));
+    }
+
+    private static String payload(Message<?> message) {
+        Object payload = message.getPayload();
+        return payload instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(payload);
+    }
+
+    /**
+     * Lowest used heap over the settle period, sampled every 50 ms: young collections run on
+     * their own during the period, so the minimum approaches the live set without a forced GC
+     */
+    private long settledHeapMb() throws InterruptedException {
+        return settledHeapBytes() / (1024 * 1024);
+    }
+
+    private long settledHeapBytes() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long lowest = Long.MAX_VALUE;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(heapSettleSeconds);
+        do {
+            lowest = Math.min(lowest, memory.getHeapMemoryUsage().getUsed());
+            Thread.sleep(50);
+        } while (System.nanoTime() < deadline);
+        return lowest;
+    }
+
+    private static long peakHeapMb() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024 * 1024);
+    }
+
+    /**
+     * Latency counts in 100 microsecond buckets up to 60 s (longer latencies land in the last)
+     */
+    private static class LatencyHistogram {
+        private static final long BUCKET_NANOS = 100_000;
+        private final AtomicLongArray buckets = new AtomicLongArray(600_000);
+        private final AtomicLong count = new AtomicLong();
+
+        void record(long latencyNanos) {
+            int bucket = (int) Math.min(Math.max(latencyNanos, 0) / BUCKET_NANOS, buckets.length() - 1);
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        double percentileMillis(double percentile) {
+            long target = (long) Math.ceil(count.get() * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) {
+                    return (i + 1) * BUCKET_NANOS / 1e6;
+                }
+            }
+            return 0;
+        }
+
+        String summary() {
+            return String.format("%d deliveries, p50 %.1f ms, p99 %.1f ms, p999 %.1f ms",
+                    count.get(), percentileMillis(0.5), percentileMillis(0.99), percentileMillis(0.999));
+        }
+    }
+}
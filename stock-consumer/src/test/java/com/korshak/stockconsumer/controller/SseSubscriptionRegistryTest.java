@@ -0,0 +1,73 @@
+package com.korshak.stockconsumer.controller;
+
+import com.korshak.stockconsumer.service.SymbolIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseSubscriptionRegistryTest {
+
+    private final SymbolIndex symbolIndex = new SymbolIndex();
+    private final SseSubscriptionRegistry registry = new SseSubscriptionRegistry(symbolIndex);
+
+    @Test
+    void subscribingDoesNotInternSymbols() {
+        symbolIndex.idOf("AAPL");
+
+        registry.register(connection(Set.of("AAPL", "NOPE1", "NOPE2")));
+
+        assertThat(symbolIndex.size()).isEqualTo(1);
+        assertThat(symbolIndex.find("NOPE1")).isEqualTo(-1);
+    }
+
+    @Test
+    void routesKnownAndPendingSymbols() {
+        symbolIndex.idOf("AAPL");
+        SseConnection watchlist = connection(Set.of("AAPL", "MSFT"));
+        SseConnection other = connection(Set.of("GOOGL"));
+        registry.register(watchlist);
+        registry.register(other);
+
+        assertThat(subscribers("AAPL")).containsExactly(watchlist);
+        // MSFT gets its id on its first tick, after the subscription
+        symbolIndex.idOf("MSFT");
+        assertThat(subscribers("MSFT")).containsExactly(watchlist);
+        assertThat(subscribers("TSLA")).isEmpty();
+        assertThat(registry.countsBySymbol()).containsEntry("AAPL", 1).containsEntry("MSFT", 1).containsEntry("GOOGL", 1);
+    }
+
+    @Test
+    void unregisterDropsPendingSymbols() {
+        SseConnection connection = connection(Set.of("MSFT"));
+        registry.register(connection);
+        registry.unregister(connection);
+
+        assertThat(subscribers("MSFT")).isEmpty();
+        assertThat(registry.countsBySymbol()).isEmpty();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void allSymbolConnectionsGetEveryTick() {
+        SseConnection all = new SseConnection(new SseEmitter(), null, Runnable::run, 10, failed -> {});
+        registry.register(all);
+
+        assertThat(subscribers("ANY")).containsExactly(all);
+        assertThat(all.wants(-1, "ANY")).isTrue();
+    }
+
+    private SseConnection connection(Set<String> symbols) {
+        return new SseConnection(new SseEmitter(), SymbolFilter.of(symbols, symbolIndex), Runnable::run, 10, failed -> {});
+    }
+
+    private List<SseConnection> subscribers(String symbol) {
+        List<SseConnection> result = new ArrayList<>();
+        registry.forEachSubscriber(symbol, result::add);
+        return result;
+    }
+}
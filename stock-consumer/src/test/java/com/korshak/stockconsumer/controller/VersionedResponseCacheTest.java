@@ -0,0 +1,53 @@
+package com.korshak.stockconsumer.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedResponseCacheTest {
+
+    @Test
+    void matchesEntityTagsExactly() {
+        String etag = "W/\"current-12\"";
+
+        assertThat(VersionedResponseCache.matches("W/\"current-12\"", etag)).isTrue();
+        assertThat(VersionedResponseCache.matches("\"current-12\"", etag)).isTrue();
+        assertThat(VersionedResponseCache.matches("\"a\", W/\"current-12\" ,\"b\"", etag)).isTrue();
+        assertThat(VersionedResponseCache.matches("*", etag)).isTrue();
+
+        assertThat(VersionedResponseCache.matches("W/\"current-123\"", etag)).isFalse();
+        assertThat(VersionedResponseCache.matches("W/\"current-1\"", etag)).isFalse();
+        assertThat(VersionedResponseCache.matches("\"xW/\\\"current-12\\\"\"", etag)).isFalse();
+        assertThat(VersionedResponseCache.matches("", etag)).isFalse();
+    }
+
+    @Test
+    void rebuildsOncePerVersion() {
+        AtomicInteger builds = new AtomicInteger();
+        VersionedResponseCache cache = new VersionedResponseCache("test", new ObjectMapper(),
+                () -> Map.of("builds", builds.incrementAndGet()));
+
+        ResponseEntity<byte[]> first = cache.respond(1, null, null);
+        cache.respond(1, null, null);
+        ResponseEntity<byte[]> second = cache.respond(2, null, null);
+
+        assertThat(builds.get()).isEqualTo(2);
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"builds\":1}");
+        assertThat(second.getHeaders().getETag()).isEqualTo("W/\"test-2\"");
+    }
+
+    @Test
+    void notModifiedForCurrentTag() {
+        VersionedResponseCache cache = new VersionedResponseCache("test", new ObjectMapper(), () -> Map.of());
+
+        assertThat(cache.respond(5, "W/\"test-5\"", null).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(cache.respond(6, "W/\"test-5\"", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,146 @@
+package com.korshak.stockconsumer.history;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DownsamplerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    @ParameterizedTest
+    @EnumSource(Downsampler.Mode.class)
+    void keepsEveryTickWhenTheyFit(Downsampler.Mode mode) {
+        List<StockPrice> ticks = series(10);
+
+        assertThat(downsample(mode, ticks, 10)).containsExactlyElementsOf(ticks);
+        assertThat(downsample(mode, ticks, 50)).containsExactlyElementsOf(ticks);
+    }
+
+    @Test
+    void rejectsFewerThanThreePoints() {
+        assertThatThrownBy(() -> Downsampler.create(Downsampler.Mode.LTTB, 100, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Downsampler.create(Downsampler.Mode.MINMAX, 100, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Downsampler.Mode.class)
+    void emptyAndSingleTickSeries(Downsampler.Mode mode) {
+        assertThat(Downsampler.create(mode, 0, 10).finish()).isEmpty();
+
+        StockPrice tick = tick(0, 100);
+        assertThat(downsample(mode, List.of(tick), 3)).containsExactly(tick);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Downsampler.Mode.class)
+    void keepsFirstAndLastInTimeOrder(Downsampler.Mode mode) {
+        List<StockPrice> ticks = series(1000);
+
+        List<StockPrice> sampled = downsample(mode, ticks, 50);
+
+        assertThat(sampled).hasSizeLessThanOrEqualTo(50).hasSizeGreaterThan(3);
+        assertThat(sampled.get(0)).isSameAs(ticks.get(0));
+        assertThat(sampled.get(sampled.size() - 1)).isSameAs(ticks.get(ticks.size() - 1));
+        assertThat(sampled).isSortedAccordingTo((a, b) -> a.getTimestamp().compareTo(b.getTimestamp()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Downsampler.Mode.class)
+    void extraTicksFallIntoTheLastBucket(Downsampler.Mode mode) {
+        List<StockPrice> ticks = series(1200);
+        Downsampler downsampler = Downsampler.create(mode, 1000, 50);
+        ticks.forEach(downsampler);
+
+        List<StockPrice> sampled = downsampler.finish();
+
+        assertThat(sampled).hasSizeLessThanOrEqualTo(50);
+        assertThat(sampled.get(sampled.size() - 1)).isSameAs(ticks.get(ticks.size() - 1));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Downsampler.Mode.class)
+    void extraTicksStayWithinMaxPointsWhenAllWereExpectedToFit(Downsampler.Mode mode) {
+        List<StockPrice> ticks = series(40);
+        Downsampler downsampler = Downsampler.create(mode, 8, 10);
+        ticks.forEach(downsampler);
+
+        List<StockPrice> sampled = downsampler.finish();
+
+        assertThat(sampled).hasSize(10);
+        assertThat(sampled.subList(0, 8)).containsExactlyElementsOf(ticks.subList(0, 8));
+        assertThat(sampled.get(sampled.size() - 1)).isSameAs(ticks.get(ticks.size() - 1));
+        assertThat(sampled).isSortedAccordingTo((a, b) -> a.getTimestamp().compareTo(b.getTimestamp()));
+    }
+
+    @Test
+    void lttbKeepsASpike() {
+        List<StockPrice> ticks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ticks.add(tick(i, i == 37 ? 500 : 100));
+        }
+
+        assertThat(downsample(Downsampler.Mode.LTTB, ticks, 10)).contains(ticks.get(37));
+    }
+
+    @Test
+    void minMaxKeepsEachBucketsExtremesInTimeOrder() {
+        // 22 ticks into 6 points: first, last and two buckets of ten middle ticks
+        List<StockPrice> ticks = new ArrayList<>();
+        for (int i = 0; i < 22; i++) {
+            ticks.add(tick(i, 100));
+        }
+        ticks.set(3, tick(3, 150));  // bucket 0: max before min
+        ticks.set(7, tick(7, 50));
+        ticks.set(12, tick(12, 40)); // bucket 1: min before max
+        ticks.set(18, tick(18, 160));
+
+        assertThat(downsample(Downsampler.Mode.MINMAX, ticks, 6)).containsExactly(
+                ticks.get(0), ticks.get(3), ticks.get(7), ticks.get(12), ticks.get(18), ticks.get(21));
+    }
+
+    @Test
+    void minMaxWithRoomForOnePointPerBucketFallsBackToLttb() {
+        List<StockPrice> sampled = downsample(Downsampler.Mode.MINMAX, series(100), 3);
+
+        assertThat(sampled).hasSize(3);
+    }
+
+    @Test
+    void untimedTicksUseTheirIndex() {
+        List<StockPrice> ticks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ticks.add(new StockPrice("AAPL", i == 50 ? 500 : 100, 0, 0, null));
+        }
+
+        assertThat(downsample(Downsampler.Mode.LTTB, ticks, 10)).contains(ticks.get(50)).hasSize(10);
+    }
+
+    private static List<StockPrice> downsample(Downsampler.Mode mode, List<StockPrice> ticks, int maxPoints) {
+        Downsampler downsampler = Downsampler.create(mode, ticks.size(), maxPoints);
+        ticks.forEach(downsampler);
+        return downsampler.finish();
+    }
+
+    private static List<StockPrice> series(int count) {
+        List<StockPrice> ticks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ticks.add(tick(i, 100 + 10 * Math.sin(i / 15.0) + (i % 7)));
+        }
+        return ticks;
+    }
+
+    private static StockPrice tick(int second, double price) {
+        return new StockPrice("AAPL", price, 0, 0, START.plusSeconds(second));
+    }
+}
@@ -0,0 +1,111 @@
+package com.korshak.stockconsumer.history;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TickBlockTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    @Test
+    void emptyBlock() {
+        TickBlock block = TickBlock.encode(List.of());
+
+        assertThat(block.getCount()).isZero();
+        assertThat(block.getTimedCount()).isZero();
+        assertThat(block.reader().next()).isFalse();
+    }
+
+    @Test
+    void singleTick() {
+        StockPrice tick = new StockPrice("AAPL", 189.5, -0.25, -0.13, START.plusNanos(123_000_000));
+
+        List<StockPrice> decoded = decode(TickBlock.encode(List.of(tick)));
+
+        assertThat(decoded).hasSize(1);
+        assertSameTick(decoded.get(0), tick);
+    }
+
+    @Test
+    void nullTimestampDecodesToNull() {
+        List<StockPrice> ticks = List.of(
+                new StockPrice("AAPL", 1, 0, 0, START),
+                new StockPrice("AAPL", 2, 1, 100, null),
+                new StockPrice("AAPL", 3, 1, 50, START.plusSeconds(2)));
+        TickBlock block = TickBlock.encode(ticks);
+
+        List<StockPrice> decoded = decode(block);
+
+        assertThat(decoded.get(1).getTimestamp()).isNull();
+        assertSameTick(decoded.get(0), ticks.get(0));
+        assertSameTick(decoded.get(2), ticks.get(2));
+        assertThat(block.getTimedCount()).isEqualTo(2);
+        assertThat(block.getMaxMillis()).isEqualTo(TickBlock.toEpochMillis(START.plusSeconds(2)));
+        assertThat(decode(block)).usingRecursiveFieldByFieldElementComparator().isEqualTo(decoded);
+    }
+
+    @Test
+    void specialValues() {
+        List<StockPrice> ticks = List.of(
+                new StockPrice("X", Double.NaN, 0.0, -0.0, START),
+                new StockPrice("X", Double.NaN, -0.0, 0.0, START),
+                new StockPrice("X", 10, 10, Double.POSITIVE_INFINITY, START.minusSeconds(30)),
+                new StockPrice("X", 10, 10, Double.POSITIVE_INFINITY, START.plusDays(400)));
+
+        List<StockPrice> decoded = decode(TickBlock.encode(ticks));
+
+        for (int i = 0; i < ticks.size(); i++) {
+            assertSameTick(decoded.get(i), ticks.get(i));
+        }
+    }
+
+    @Test
+    void timestampsAreKeptToTheMillisecond() {
+        StockPrice tick = new StockPrice("X", 1, 0, 0, START.plusNanos(123_456_789));
+
+        assertThat(decode(TickBlock.encode(List.of(tick))).get(0).getTimestamp())
+                .isEqualTo(START.plusNanos(123_000_000));
+    }
+
+    @Test
+    void untimedTicksAreOutsideEveryRange() {
+        TickHistory history = new TickHistory("X", 4, 3_600_000L);
+        for (int i = 0; i < 8; i++) {
+            history.add(new StockPrice("X", i, 0, 0, i % 2 == 0 ? START.plusSeconds(i) : null));
+        }
+
+        assertThat(history.getBlockCount()).isEqualTo(2);
+        assertThat(history.countInRange(START.minusSeconds(1), START.plusSeconds(10))).isEqualTo(4);
+        List<StockPrice> inRange = new ArrayList<>();
+        history.forEachInRange(START.minusSeconds(1), START.plusSeconds(10), inRange::add);
+        assertThat(inRange).extracting(StockPrice::getPrice).containsExactly(0.0, 2.0, 4.0, 6.0);
+        List<StockPrice> all = new ArrayList<>();
+        history.forEach(all::add);
+        assertThat(all).hasSize(8);
+        assertThat(all.get(1).getTimestamp()).isNull();
+    }
+
+    private static List<StockPrice> decode(TickBlock block) {
+        List<StockPrice> result = new ArrayList<>();
+        TickBlock.Reader reader = block.reader();
+        while (reader.next()) {
+            result.add(reader.toStockPrice("X"));
+        }
+        assertThat(result).hasSize(block.getCount());
+        return result;
+    }
+
+    private static void assertSameTick(StockPrice actual, StockPrice expected) {
+        assertThat(Double.doubleToRawLongBits(actual.getPrice())).isEqualTo(Double.doubleToRawLongBits(expected.getPrice()));
+        assertThat(Double.doubleToRawLongBits(actual.getChange())).isEqualTo(Double.doubleToRawLongBits(expected.getChange()));
+        assertThat(Double.doubleToRawLongBits(actual.getChangePercent()))
+                .isEqualTo(Double.doubleToRawLongBits(expected.getChangePercent()));
+        assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+    }
+}
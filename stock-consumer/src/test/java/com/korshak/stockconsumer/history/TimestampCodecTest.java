@@ -0,0 +1,77 @@
+package com.korshak.stockconsumer.history;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimestampCodecTest {
+
+    @Test
+    void singleTimestamp() {
+        assertThat(roundTrip(1_700_000_000_123L)).containsExactly(1_700_000_000_123L);
+    }
+
+    @Test
+    void steadyRateCostsOneBitPerTick() {
+        long[] timestamps = new long[129];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 1000L;
+        }
+        BitOutput out = new BitOutput(1);
+        TimestampCodec codec = new TimestampCodec();
+        for (long timestamp : timestamps) {
+            codec.encode(out, timestamp);
+        }
+
+        // 64-bit first value, 9 bits for the first delta, then one bit per tick
+        assertThat(out.toWords()).hasSize((64 + 9 + 127 + 63) / 64);
+        assertThat(roundTrip(timestamps)).containsExactly(timestamps);
+    }
+
+    @Test
+    void equalTimestamps() {
+        assertThat(roundTrip(5000, 5000, 5000, 5001, 5001)).containsExactly(5000, 5000, 5000, 5001, 5001);
+    }
+
+    @Test
+    void negativeDeltas() {
+        long[] timestamps = {10_000, 9_990, 9_000, 12_000, 11_999, 0, -5_000};
+        assertThat(roundTrip(timestamps)).containsExactly(timestamps);
+    }
+
+    @Test
+    void deltaOfDeltaAtEveryBucketBoundary() {
+        long[] deltaOfDeltas = {-63, 64, -64, 65, -255, 256, -256, 257, -2047, 2048, -2048, 2049};
+        long[] timestamps = new long[deltaOfDeltas.length + 2];
+        long delta = 0;
+        timestamps[0] = 1_000_000;
+        timestamps[1] = 1_000_000;
+        for (int i = 0; i < deltaOfDeltas.length; i++) {
+            delta += deltaOfDeltas[i];
+            timestamps[i + 2] = timestamps[i + 1] + delta;
+        }
+        assertThat(roundTrip(timestamps)).containsExactly(timestamps);
+    }
+
+    @Test
+    void largeDeltasAndExtremeValues() {
+        long[] timestamps = {0, Long.MAX_VALUE, Long.MIN_VALUE, 1, -1, Long.MAX_VALUE, Long.MAX_VALUE};
+        assertThat(roundTrip(timestamps)).containsExactly(timestamps);
+    }
+
+    private static long[] roundTrip(long... timestamps) {
+        BitOutput out = new BitOutput(1);
+        TimestampCodec encoder = new TimestampCodec();
+        for (long timestamp : timestamps) {
+            encoder.encode(out, timestamp);
+        }
+
+        BitInput in = new BitInput(out.toWords());
+        TimestampCodec decoder = new TimestampCodec();
+        long[] decoded = new long[timestamps.length];
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = decoder.decode(in);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,77 @@
+package com.korshak.stockconsumer.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XorCodecTest {
+
+    @Test
+    void singleValue() {
+        assertBitExact(189.25);
+    }
+
+    @Test
+    void identicalValuesCostOneBit() {
+        BitOutput out = new BitOutput(1);
+        XorCodec codec = new XorCodec();
+        codec.encode(out, 0.0); // same bits as the initial state
+        for (int i = 0; i < 63; i++) {
+            codec.encode(out, 0.0);
+        }
+
+        assertThat(out.toWords()).hasSize(1);
+        assertBitExact(150.5, 150.5, 150.5, 150.5);
+    }
+
+    @Test
+    void signedZeros() {
+        assertBitExact(0.0, -0.0, 0.0, -0.0, -0.0, 1.0, -0.0);
+    }
+
+    @Test
+    void nanAndInfinities() {
+        double otherNan = Double.longBitsToDouble(0x7ff8_0000_0000_0001L);
+        assertBitExact(Double.NaN, 1.5, Double.NaN, otherNan, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE);
+    }
+
+    @Test
+    void randomWalk() {
+        Random random = new Random(42);
+        double[] values = new double[5000];
+        double price = 100;
+        for (int i = 0; i < values.length; i++) {
+            price += random.nextInt(5) == 0 ? 0 : Math.round(random.nextGaussian() * 100) / 100.0;
+            values[i] = price;
+        }
+        assertBitExact(values);
+    }
+
+    @Test
+    void randomBits() {
+        Random random = new Random(7);
+        double[] values = new double[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.longBitsToDouble(random.nextLong());
+        }
+        assertBitExact(values);
+    }
+
+    private static void assertBitExact(double... values) {
+        BitOutput out = new BitOutput(1);
+        XorCodec encoder = new XorCodec();
+        for (double value : values) {
+            encoder.encode(out, value);
+        }
+
+        BitInput in = new BitInput(out.toWords());
+        XorCodec decoder = new XorCodec();
+        for (int i = 0; i < values.length; i++) {
+            long expected = Double.doubleToRawLongBits(values[i]);
+            assertThat(Double.doubleToRawLongBits(decoder.decode(in))).as("value %d", i).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.korshak.stockconsumer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class CorrelationServiceTest {
+
+    private static final int WINDOW = 5;
+    private static final int RING = 8;
+
+    private final StockDataService stockDataService = mock(StockDataService.class);
+    private final CorrelationService service = new CorrelationService();
+
+    // Current price per symbol, as the next sample will see it
+    private final Map<String, Double> prices = new LinkedHashMap<>();
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    /**
+     * The default window is kept as running sums (added and evicted returns, rebuilt once per
+     * window); it must match a two-pass computation over the same returns while the window
+     * fills, once the ring wraps, and with a symbol that joins late
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {64, 1}) // rows serially, and on the fork-join pool
+    void runningSumsMatchTheTwoPassResult(int parallelThreshold) {
+        start(parallelThreshold);
+        Random random = new Random(42);
+        prices.put("AAPL", 100.0);
+        prices.put("MSFT", 200.0);
+        prices.put("TSLA", 50.0);
+
+        // Returns per symbol, oldest first; a symbol's returns before its second sample are zero
+        Map<String, List<Double>> returns = new LinkedHashMap<>();
+        Map<String, Double> lastPrices = new HashMap<>();
+        for (int sample = 0; sample < 3 * RING + 3; sample++) {
+            if (sample == 4) {
+                prices.put("AMZN", 150.0);
+            }
+            int samplesSoFar = sample;
+            prices.replaceAll((symbol, price) -> price * (1 + (random.nextDouble() - 0.5) / 50));
+            if (sample % 3 == 0) {
+                prices.put("MSFT", prices.get("MSFT") * 1.01); // some pairs move together
+                prices.put("AAPL", prices.get("AAPL") * 1.01);
+            }
+            service.sample();
+
+            prices.forEach((symbol, price) -> {
+                List<Double> series = returns.computeIfAbsent(symbol,
+                        k -> new ArrayList<>(Collections.nCopies(samplesSoFar, 0.0)));
+                Double last = lastPrices.put(symbol, price);
+                series.add(last != null ? Math.log(price / last) : 0);
+            });
+
+            assertMatchesTwoPass(service.getCorrelation(null, WINDOW), returns);
+        }
+    }
+
+    private void assertMatchesTwoPass(CorrelationService.CorrelationMatrix result, Map<String, List<Double>> returns) {
+        List<String> symbols = new ArrayList<>(returns.keySet());
+        assertThat(result.symbols()).containsExactlyElementsOf(symbols);
+        int samples = Math.min(returns.get(symbols.get(0)).size(), WINDOW);
+        assertThat(result.samples()).isEqualTo(samples);
+
+        for (int a = 0; a < symbols.size(); a++) {
+            for (int b = 0; b < symbols.size(); b++) {
+                List<Double> x = tail(returns.get(symbols.get(a)), samples);
+                List<Double> y = tail(returns.get(symbols.get(b)), samples);
+                double cov = covariance(x, y);
+                if (Double.isNaN(cov)) {
+                    assertThat(result.covariance()[a][b]).isNull();
+                    continue;
+                }
+                assertThat(result.covariance()[a][b]).isCloseTo(cov, within(1e-12));
+
+                double varianceA = covariance(x, x);
+                double varianceB = covariance(y, y);
+                if (varianceA > 1e-18 && varianceB > 1e-18) {
+                    assertThat(result.correlation()[a][b])
+                            .isCloseTo(cov / Math.sqrt(varianceA * varianceB), within(1e-6));
+                }
+            }
+        }
+    }
+
+    private static List<Double> tail(List<Double> series, int samples) {
+        return series.subList(series.size() - samples, series.size());
+    }
+
+    private static double covariance(List<Double> x, List<Double> y) {
+        int n = x.size();
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double meanX = x.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double meanY = y.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double dot = 0;
+        for (int s = 0; s < n; s++) {
+            dot += (x.get(s) - meanX) * (y.get(s) - meanY);
+        }
+        return dot / (n - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(int parallelThreshold) {
+        doAnswer(invocation -> {
+            Consumer<CurrentPriceView> action = invocation.getArgument(0);
+            prices.forEach((symbol, price) -> {
+                CurrentPriceView view = new CurrentPriceView();
+                view.symbol = symbol;
+                view.price = price;
+                action.accept(view);
+            });
+            return null;
+        }).when(stockDataService).forEachCurrentPrice(any(Consumer.class));
+
+        ReflectionTestUtils.setField(service, "stockDataService", stockDataService);
+        ReflectionTestUtils.setField(service, "sampleIntervalMillis", 1000L);
+        ReflectionTestUtils.setField(service, "windowSamples", WINDOW);
+        ReflectionTestUtils.setField(service, "maxWindowSamples", RING);
+        ReflectionTestUtils.setField(service, "parallelThreshold", parallelThreshold);
+        service.init();
+    }
+}
@@ -0,0 +1,119 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaHistoryServiceTest {
+
+    private static final String TOPIC = "stock-prices";
+
+    // Partition -> records, in offset order
+    private final Map<Integer, List<ConsumerRecord<String, StockPrice>>> partitions = new TreeMap<>();
+    private final KafkaHistoryService service = new KafkaHistoryService();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ConsumerFactory<String, StockPrice> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(any(), any(), any(), any())).thenAnswer(invocation -> consumer());
+        ReflectionTestUtils.setField(service, "consumerFactory", consumerFactory);
+        ReflectionTestUtils.setField(service, "topic", TOPIC);
+        ReflectionTestUtils.setField(service, "groupId", "test");
+        ReflectionTestUtils.setField(service, "maxPollRecords", 500);
+        ReflectionTestUtils.setField(service, "scanChunk", 10);
+    }
+
+    @Test
+    void symbolMovedToAnotherPartitionComesOutInTimeOrder() {
+        // HOT ticks on partition 1 until t=50, then moved to partition 0
+        for (long t = 1; t <= 50; t++) {
+            add(0, "OTHER", t);
+            add(1, "HOT", t);
+        }
+        for (long t = 51; t <= 80; t++) {
+            add(0, "HOT", t);
+            add(1, "OTHER", t);
+        }
+
+        assertThat(history("HOT", 5)).containsExactly(76L, 77L, 78L, 79L, 80L);
+        assertThat(history("HOT", 40)).containsExactlyElementsOf(range(41, 80));
+        assertThat(history("HOT", 1000)).containsExactlyElementsOf(range(1, 80));
+    }
+
+    @Test
+    void symbolOnOnePartitionIsFoundBehindOtherTraffic() {
+        for (long t = 1; t <= 30; t++) {
+            add(0, "RARE", t * 10);
+        }
+        for (long t = 1; t <= 400; t++) {
+            add(1, "BUSY", 300 + t);
+        }
+
+        assertThat(history("RARE", 3)).containsExactly(280L, 290L, 300L);
+        assertThat(history("NONE", 3)).isEmpty();
+    }
+
+    private List<Long> history(String symbol, int limit) {
+        List<Long> times = new ArrayList<>();
+        service.streamHistory(symbol, limit, price -> times.add((long) price.getPrice()));
+        return times;
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().toList();
+    }
+
+    /**
+     * A record whose timestamp and price are both {@code time}
+     */
+    private void add(int partition, String symbol, long time) {
+        List<ConsumerRecord<String, StockPrice>> records = partitions.computeIfAbsent(partition, p -> new ArrayList<>());
+        records.add(new ConsumerRecord<>(TOPIC, partition, records.size(), time, TimestampType.CREATE_TIME,
+                -1, -1, symbol, new StockPrice(symbol, time, 0, 0, null), new RecordHeaders(), Optional.empty()));
+    }
+
+    private Consumer<String, StockPrice> consumer() {
+        MockConsumer<String, StockPrice> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+            @Override
+            public synchronized void assign(Collection<TopicPartition> assigned) {
+                super.assign(assigned);
+                // Poll drops handed-out records, so every (re)assignment puts them back
+                for (TopicPartition partition : assigned) {
+                    partitions.get(partition.partition()).forEach(this::addRecord);
+                }
+            }
+        };
+        List<PartitionInfo> infos = new ArrayList<>();
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        Map<TopicPartition, Long> end = new HashMap<>();
+        partitions.forEach((partition, records) -> {
+            infos.add(new PartitionInfo(TOPIC, partition, Node.noNode(), new Node[0], new Node[0]));
+            beginning.put(new TopicPartition(TOPIC, partition), 0L);
+            end.put(new TopicPartition(TOPIC, partition), (long) records.size());
+        });
+        consumer.updatePartitions(TOPIC, infos);
+        consumer.updateBeginningOffsets(beginning);
+        consumer.updateEndOffsets(end);
+        return consumer;
+    }
+}
@@ -0,0 +1,151 @@
+package com.korshak.stockconsumer.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.korshak.stockconsumer.model.StockPrice;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapPriceTableTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30);
+
+    @Test
+    void putGetAndClearAcrossPages() {
+        OffHeapPriceTable table = new OffHeapPriceTable(4);
+
+        assertThat(table.get(0, "A")).isNull();
+        assertThat(table.put(0, new StockPrice("A", 1.5, 0.1, 7.14, START.plusNanos(5)))).isTrue();
+        assertThat(table.put(0, new StockPrice("A", 2.5, 1.1, 78.5, null))).isFalse();
+        assertThat(table.put(9, new StockPrice("J", 3, 0, 0, START))).isTrue();
+
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.getOffHeapBytes()).isEqualTo(3 * 4 * 48);
+        assertThat(table.get(0, "A")).usingRecursiveComparison().isEqualTo(new StockPrice("A", 2.5, 1.1, 78.5, null));
+        assertThat(table.get(9, "J")).usingRecursiveComparison().isEqualTo(new StockPrice("J", 3, 0, 0, START));
+        assertThat(table.get(5, "F")).isNull();
+        assertThat(table.get(100, "X")).isNull();
+
+        table.clear();
+        assertThat(table.size()).isZero();
+        assertThat(table.get(9, "J")).isNull();
+        assertThat(table.put(9, new StockPrice("J", 4, 0, 0, START))).isTrue();
+        assertThat(table.getOffHeapBytes()).isEqualTo(3 * 4 * 48);
+    }
+
+    @Test
+    void forEachVisitsOnlyAssignedIds() {
+        OffHeapPriceTable table = new OffHeapPriceTable(8);
+        table.put(1, new StockPrice("B", 1, 0, 0, START));
+        table.put(3, new StockPrice("D", 3, 0, 0, START));
+        table.put(6, new StockPrice("G", 6, 0, 0, START));
+
+        List<String> visited = new ArrayList<>();
+        table.forEach(5, id -> String.valueOf((char) ('A' + id)), view -> visited.add(view.getSymbol()));
+
+        assertThat(visited).containsExactly("B", "D");
+    }
+
+    @Test
+    void writeJsonMatchesJacksonSerialization() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        OffHeapPriceTable table = new OffHeapPriceTable(2);
+        Map<String, StockPrice> expected = new LinkedHashMap<>();
+        List<StockPrice> prices = List.of(
+                new StockPrice("AAPL", 189.25, -1.5, -0.7863, START.plusNanos(999_999_999)),
+                new StockPrice("BRK.A", 612345.0, 12345.678, 2.0575, START.plusDays(1)),
+                new StockPrice("TINY", 1.0E-7, -0.0, 0.0, null),
+                new StockPrice("NEG-1", -3.0, 1.0E21, -123.456789, START.minusYears(30)));
+        for (int id = 0; id < prices.size(); id++) {
+            table.put(id, prices.get(id));
+            expected.put(prices.get(id).getSymbol(), prices.get(id));
+        }
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            table.writeJson(generator, prices.size(), id -> prices.get(id).getSymbol());
+        }
+
+        assertThat(writer.toString()).isEqualTo(objectMapper.writeValueAsString(expected));
+        CurrentPriceView[] first = new CurrentPriceView[1];
+        table.forEach(1, id -> "AAPL", view -> first[0] = view);
+        assertThat(first[0].toJson(objectMapper.getFactory())).isEqualTo(objectMapper.writeValueAsString(prices.get(0)));
+    }
+
+    @Test
+    void timestampsAreWrittenAsUtcAndReadWithOrWithoutZ() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        StockPrice price = new StockPrice("AAPL", 1, 0, 0, LocalDateTime.of(2024, 1, 15, 10, 30, 45));
+
+        assertThat(objectMapper.writeValueAsString(price)).contains("\"timestamp\":\"2024-01-15T10:30:45Z\"");
+        assertThat(objectMapper.readValue("{\"timestamp\":\"2024-01-15T10:30:45Z\"}", StockPrice.class).getTimestamp())
+                .isEqualTo(price.getTimestamp());
+        assertThat(objectMapper.readValue("{\"timestamp\":\"2024-01-15T10:30:45\"}", StockPrice.class).getTimestamp())
+                .isEqualTo(price.getTimestamp());
+    }
+
+    @Test
+    void readersNeverSeeTornRecords() throws Exception {
+        int ids = 64;
+        OffHeapPriceTable table = new OffHeapPriceTable(16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch writersDone = new CountDownLatch(3);
+
+        // Every write keeps price == change == -changePercent and the timestamp derived from it
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 3; w++) {
+            long seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 300_000; i++) {
+                    int value = random.nextInt(1_000_000);
+                    table.put(random.nextInt(ids), new StockPrice("S", value, value, -value, START.plusSeconds(value)));
+                }
+                writersDone.countDown();
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    for (int id = 0; id < ids; id++) {
+                        StockPrice price = table.get(id, "S");
+                        if (price == null) {
+                            continue;
+                        }
+                        reads.incrementAndGet();
+                        double value = price.getPrice();
+                        if (price.getChange() != value || price.getChangePercent() != -value
+                                || !price.getTimestamp().equals(START.plusSeconds((long) value))) {
+                            torn.compareAndSet(null, price.toString());
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        writersDone.await();
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(torn.get()).isNull();
+        assertThat(reads.get()).isPositive();
+        assertThat(table.size()).isEqualTo(ids);
+    }
+}
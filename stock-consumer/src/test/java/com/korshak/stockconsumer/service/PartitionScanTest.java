@@ -0,0 +1,173 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionScanTest {
+
+    private static final String TOPIC = "stock-prices";
+
+    // Partition -> records, in offset order
+    private final Map<Integer, List<ConsumerRecord<String, StockPrice>>> partitions = new HashMap<>();
+    private final AtomicInteger polls = new AtomicInteger();
+    private int failingPartition = -1; // assigning it throws
+
+    @Test
+    void mergesPartitionsByTimestamp() {
+        add(0, "AAPL", 10, 1.0);
+        add(0, "AAPL", 40, 4.0);
+        add(1, "AAPL", 20, 2.0);
+        add(1, "AAPL", 50, 5.0);
+        add(2, "AAPL", 30, 3.0);
+        add(2, "AAPL", 40, 4.5); // same timestamp as partition 0: lower partition first
+
+        assertThat(prices(scan(null, Long.MAX_VALUE), 0, Long.MAX_VALUE))
+                .containsExactly(1.0, 2.0, 3.0, 4.0, 4.5, 5.0);
+    }
+
+    @Test
+    void skipsAndLimitsTheMergedOrder() {
+        for (int i = 0; i < 5; i++) {
+            add(0, "AAPL", i * 20, i * 20);
+            add(1, "AAPL", i * 20 + 10, i * 20 + 10);
+        }
+
+        assertThat(prices(scan(null, Long.MAX_VALUE), 2, 3)).containsExactly(20.0, 30.0, 40.0);
+        assertThat(prices(scan(null, Long.MAX_VALUE), 9, 5)).containsExactly(90.0);
+        assertThat(prices(scan(null, Long.MAX_VALUE), 0, 0)).isEmpty();
+    }
+
+    @Test
+    void keepsTheSymbolAndStopsPastTheCutoff() {
+        add(0, "AAPL", 10, 1.0);
+        add(0, "MSFT", 15, 99.0);
+        add(0, "AAPL", 20, 2.0);
+        add(0, "AAPL", 100, 3.0); // reader stops here
+        add(1, "AAPL", 5, 0.5);
+        add(1, "AAPL", 200, 4.0);
+
+        assertThat(prices(scan("AAPL", 50), 0, Long.MAX_VALUE)).containsExactly(0.5, 1.0, 2.0);
+    }
+
+    @Test
+    void symbolSplitAcrossPartitionsSkipsItsOldestTicks() {
+        // AAPL ticked on partition 1, then was moved to partition 0
+        add(0, "MSFT", 10, 99.0);
+        add(0, "AAPL", 40, 4.0);
+        add(0, "AAPL", 50, 5.0);
+        add(1, "AAPL", 10, 1.0);
+        add(1, "AAPL", 20, 2.0);
+        add(1, "AAPL", 30, 3.0);
+        add(1, "MSFT", 60, 98.0);
+
+        assertThat(prices(scan("AAPL", Long.MAX_VALUE), 2, Long.MAX_VALUE)).containsExactly(3.0, 4.0, 5.0);
+    }
+
+    @Test
+    void readsOnlyTheRequestedOffsets() {
+        for (int i = 0; i < 6; i++) {
+            add(0, "AAPL", i, i);
+        }
+
+        List<StockPrice> result = new ArrayList<>();
+        scan(null, Long.MAX_VALUE).run(List.of(new PartitionScan.Range(partition(0), 2, 4)), 0, Long.MAX_VALUE,
+                price -> true, result::add);
+
+        assertThat(result).extracting(StockPrice::getPrice).containsExactly(2.0, 3.0);
+    }
+
+    @Test
+    @Timeout(10)
+    void cancelsReadersOnceTheLimitIsReached() {
+        for (int i = 0; i < 1000; i++) {
+            add(0, "AAPL", i, i);
+            add(1, "AAPL", i, i);
+        }
+
+        assertThat(prices(scan(null, Long.MAX_VALUE), 0, 3)).containsExactly(0.0, 0.0, 1.0);
+        // One record per poll and a few queued batches per partition: readers stopped early
+        assertThat(polls.get()).isLessThan(100);
+    }
+
+    @Test
+    @Timeout(10)
+    void aFailedPartitionFailsTheScan() {
+        for (int i = 0; i < 5; i++) {
+            add(0, "AAPL", i, i);
+            add(1, "AAPL", i, i);
+        }
+        failingPartition = 1;
+
+        assertThatThrownBy(() -> prices(scan(null, Long.MAX_VALUE), 0, Long.MAX_VALUE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("broker unavailable");
+    }
+
+    private PartitionScan scan(String symbol, long stopAfterMillis) {
+        return new PartitionScan(this::consumer, symbol, stopAfterMillis, Duration.ZERO, 10);
+    }
+
+    private List<Double> prices(PartitionScan scan, long skip, long limit) {
+        List<PartitionScan.Range> ranges = new ArrayList<>();
+        partitions.forEach((partition, records) -> ranges.add(new PartitionScan.Range(partition(partition), 0, records.size())));
+        List<Double> prices = new ArrayList<>();
+        scan.run(ranges, skip, limit, price -> true, price -> prices.add(price.getPrice()));
+        return prices;
+    }
+
+    private void add(int partition, String symbol, long timestamp, double price) {
+        List<ConsumerRecord<String, StockPrice>> records = partitions.computeIfAbsent(partition, p -> new ArrayList<>());
+        records.add(new ConsumerRecord<>(TOPIC, partition, records.size(), timestamp, TimestampType.CREATE_TIME,
+                -1, -1, symbol, new StockPrice(symbol, price, 0, 0, null), new RecordHeaders(), Optional.empty()));
+    }
+
+    private static TopicPartition partition(int partition) {
+        return new TopicPartition(TOPIC, partition);
+    }
+
+    /**
+     * A consumer that hands out one record per poll, so every record is its own batch
+     */
+    private Consumer<String, StockPrice> consumer() {
+        return new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+            private final Deque<ConsumerRecord<String, StockPrice>> unread = new ArrayDeque<>();
+
+            @Override
+            public synchronized void assign(Collection<TopicPartition> assigned) {
+                if (assigned.contains(partition(failingPartition))) {
+                    throw new KafkaException("broker unavailable");
+                }
+                super.assign(assigned);
+                for (TopicPartition partition : assigned) {
+                    unread.addAll(partitions.getOrDefault(partition.partition(), List.of()));
+                }
+            }
+
+            @Override
+            public synchronized ConsumerRecords<String, StockPrice> poll(Duration timeout) {
+                polls.incrementAndGet();
+                if (!unread.isEmpty()) {
+                    addRecord(unread.poll());
+                }
+                return super.poll(timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,176 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.AlertRule;
+import com.korshak.stockconsumer.model.AlertType;
+import com.korshak.stockconsumer.model.PriceAlert;
+import com.korshak.stockconsumer.model.StockPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriceAlertServiceTest {
+
+    private final StockDataService stockDataService = mock(StockDataService.class);
+    private final PriceAlertService service = new PriceAlertService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "stockDataService", stockDataService);
+        ReflectionTestUtils.setField(service, "maxRules", 100);
+        ReflectionTestUtils.setField(service, "windowSeconds", Set.of(60, 300, 900, 3600));
+    }
+
+    @Test
+    void firesWhenCrossingUp() {
+        AlertRule above = service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+        AlertRule below = service.addRule(rule(AlertType.CROSS_BELOW, 90));
+
+        assertThat(tick(95)).isEmpty();
+        assertThat(tick(99)).isEmpty();
+        assertThat(tick(105)).extracting(PriceAlert::getRuleId).containsExactly(above.getId());
+        assertThat(service.getRule(below.getId())).isNotNull();
+    }
+
+    @Test
+    void firesWhenCrossingDown() {
+        AlertRule below = service.addRule(rule(AlertType.CROSS_BELOW, 90));
+        service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+
+        assertThat(tick(95)).isEmpty();
+        List<PriceAlert> fired = tick(85);
+
+        assertThat(fired).extracting(PriceAlert::getRuleId).containsExactly(below.getId());
+        assertThat(fired.get(0).getPrice()).isEqualTo(85);
+        assertThat(fired.get(0).getPreviousPrice()).isEqualTo(95);
+    }
+
+    @Test
+    void aTickExactlyOnTheThresholdCrossesIt() {
+        service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+        service.addRule(rule(AlertType.CROSS_BELOW, 100));
+
+        tick(99);
+        assertThat(tick(100)).extracting(PriceAlert::getType).containsExactly(AlertType.CROSS_ABOVE);
+        // Leaving the threshold is not a crossing, reaching it from above is
+        tick(101);
+        assertThat(tick(100)).extracting(PriceAlert::getType).containsExactly(AlertType.CROSS_BELOW);
+    }
+
+    @Test
+    void startingOnTheThresholdDoesNotCrossIt() {
+        service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+
+        tick(100);
+
+        assertThat(tick(101)).isEmpty();
+    }
+
+    @Test
+    void rulesFireOnce() {
+        AlertRule first = service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+        AlertRule second = service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+        AlertRule higher = service.addRule(rule(AlertType.CROSS_ABOVE, 110));
+
+        tick(95);
+        assertThat(tick(105)).extracting(PriceAlert::getRuleId).containsExactlyInAnyOrder(first.getId(), second.getId());
+        tick(95);
+        assertThat(tick(105)).isEmpty();
+
+        assertThat(service.getRules("AAPL")).extracting(AlertRule::getId).containsExactly(higher.getId());
+        assertThat(service.getStatistics()).containsEntry("activeRules", 1).containsEntry("firedAlerts", 2L);
+        assertThat(service.removeRule(first.getId())).isFalse();
+    }
+
+    @Test
+    void firstRuleStartsFromTheCurrentPrice() {
+        when(stockDataService.getCurrentPrice("AAPL")).thenReturn(price(99));
+        service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+
+        assertThat(tick(101)).hasSize(1);
+    }
+
+    @Test
+    void percentMoveRulesUseAConfiguredWindow() {
+        AlertRule rule = rule(AlertType.PERCENT_MOVE, 5);
+        rule.setWindowSeconds(120);
+        assertThatThrownBy(() -> service.addRule(rule)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[60, 300, 900, 3600]");
+
+        rule.setWindowSeconds(300);
+        service.addRule(rule);
+        tick(100);
+        assertThat(tick(106)).extracting(PriceAlert::getRuleId).containsExactly(rule.getId());
+    }
+
+    @Test
+    void removedRulesDoNotFire() {
+        AlertRule rule = service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+
+        assertThat(service.removeRule(rule.getId())).isTrue();
+        tick(95);
+
+        assertThat(tick(105)).isEmpty();
+        assertThat(service.getRule(rule.getId())).isNull();
+    }
+
+    @Test
+    void ruleLimitHoldsUnderConcurrentAdds() throws Exception {
+        ReflectionTestUtils.setField(service, "maxRules", 50);
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService threads = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                threads.execute(() -> {
+                    try {
+                        start.await();
+                        service.addRule(rule(AlertType.CROSS_ABOVE, 100));
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        assertThat(service.getRules(null)).hasSize(50);
+        assertThat(rejected.get()).isEqualTo(150);
+
+        service.removeRule(service.getRules(null).get(0).getId());
+        service.addRule(rule(AlertType.CROSS_BELOW, 90));
+        assertThatThrownBy(() -> service.addRule(rule(AlertType.CROSS_BELOW, 90)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private List<PriceAlert> tick(double price) {
+        return new ArrayList<>(service.evaluate(price(price)));
+    }
+
+    private static StockPrice price(double price) {
+        return new StockPrice("AAPL", price, 0, 0, LocalDateTime.of(2024, 1, 15, 10, 30));
+    }
+
+    private static AlertRule rule(AlertType type, double threshold) {
+        AlertRule rule = new AlertRule();
+        rule.setSymbol("aapl");
+        rule.setType(type);
+        rule.setThreshold(threshold);
+        return rule;
+    }
+}
@@ -0,0 +1,80 @@
+package com.korshak.stockconsumer.service;
+
+import com.korshak.stockconsumer.model.StockPrice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockDataServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+    private final StockDataService service = new StockDataService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "symbolIndex", new SymbolIndex());
+        ReflectionTestUtils.setField(service, "historyBlockSize", 64);
+        ReflectionTestUtils.setField(service, "historyRetentionHours", 24L);
+        ReflectionTestUtils.setField(service, "replayBufferSize", 16);
+        ReflectionTestUtils.setField(service, "pricePageRecords", 16);
+        service.init();
+    }
+
+    @Test
+    void dropsTicksOlderThanTheSymbolsLatest() {
+        assertThat(service.addStockPrice(tick("AAPL", 100, 10))).isPositive();
+        assertThat(service.addStockPrice(tick("AAPL", 101, 10))).isPositive(); // same second is kept
+        assertThat(service.addStockPrice(tick("AAPL", 99, 5))).isEqualTo(-1);
+        assertThat(service.addStockPrice(tick("MSFT", 50, 5))).isPositive(); // other symbols are independent
+
+        assertThat(service.getCurrentPrice("AAPL").getPrice()).isEqualTo(101);
+        assertThat(service.getHistory("AAPL")).extracting(StockPrice::getPrice).containsExactly(100.0, 101.0);
+        assertThat(service.getStatistics()).containsEntry("staleTicksDropped", 1L);
+    }
+
+    @Test
+    void untimedTicksAreNeverDropped() {
+        service.addStockPrice(tick("AAPL", 100, 10));
+
+        assertThat(service.addStockPrice(new StockPrice("AAPL", 99, 0, 0, null))).isPositive();
+    }
+
+    @Test
+    void symbolsThatStopTradingLeaveTheWindowedMovers() {
+        service.addStockPrice(tick("AAPL", 100, 0));
+        service.addStockPrice(tick("AAPL", 110, 10));
+        service.addStockPrice(tick("MSFT", 200, 0));
+        service.addStockPrice(tick("MSFT", 210, 50));
+
+        service.evictStaleMovers();
+        assertThat(gainers(MoverWindow.ONE_MINUTE)).containsExactly("AAPL", "MSFT");
+
+        // MSFT keeps trading past AAPL's last tick plus one minute
+        service.addStockPrice(tick("MSFT", 220, 75));
+        long version = service.getDataVersion();
+        service.evictStaleMovers();
+
+        assertThat(gainers(MoverWindow.ONE_MINUTE)).containsExactly("MSFT");
+        assertThat(gainers(MoverWindow.FIVE_MINUTES)).containsExactlyInAnyOrder("AAPL", "MSFT");
+        assertThat(gainers(MoverWindow.SESSION)).containsExactlyInAnyOrder("AAPL", "MSFT");
+        assertThat(service.getDataVersion()).isGreaterThan(version);
+
+        // A new tick puts it back
+        service.addStockPrice(tick("AAPL", 120, 80));
+        assertThat(gainers(MoverWindow.ONE_MINUTE)).contains("AAPL");
+    }
+
+    private List<String> gainers(MoverWindow window) {
+        return service.getTopMovers(window, true, true, 10).stream().map(MoversLeaderboard.Mover::symbol).toList();
+    }
+
+    private static StockPrice tick(String symbol, double price, int second) {
+        return new StockPrice(symbol, price, 0, 0, START.plusSeconds(second));
+    }
+}
@@ -5,7 +5,8 @@ interface StockCardProps {
   stock: StockPrice;
 }
 
-export const StockCard: React.FC<StockCardProps> = ({ stock }) => {
+// Only cards whose symbol ticked re-render
+export const StockCard = React.memo<StockCardProps>(({ stock }) => {
   const isPositive = stock.change >= 0;
   const changeColor = isPositive ? 'text-green-600' : 'text-red-600';
   const bgColor = isPositive ? 'bg-green-50' : 'bg-red-50';
@@ -43,4 +44,4 @@ export const StockCard: React.FC<StockCardProps> = ({ stock }) => {
       </div>
     </div>
   );
-};
+});
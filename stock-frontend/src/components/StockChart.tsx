@@ -1,19 +1,28 @@
-import React from 'react';
+import React, { useMemo } from 'react';
 import { LineChart, Line, XAxis, YAxis, CartesianGrid, Tooltip, Legend, ResponsiveContainer } from 'recharts';
-import { StockPrice } from '../types/stock';
+import { PriceSeries } from '../types/stock';
 
 interface StockChartProps {
-  data: StockPrice[];
+  series: PriceSeries | null;
   symbol: string;
 }
 
-export const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
-  // Transform data for recharts
-  const chartData = data.map((stock) => ({
-    time: new Date(stock.timestamp).toLocaleTimeString(),
-    price: stock.price,
-    change: stock.change,
-  }));
+// Re-renders only when a new series arrives for the chart (at most once per frame)
+export const StockChart = React.memo<StockChartProps>(({ series, symbol }) => {
+  // Transform the typed-array series for recharts
+  const data = useMemo(() => {
+    if (!series || series.symbol !== symbol) {
+      return [];
+    }
+    const points = new Array(series.prices.length);
+    for (let i = 0; i < series.prices.length; i++) {
+      points[i] = {
+        time: new Date(series.times[i]).toLocaleTimeString(),
+        price: series.prices[i],
+      };
+    }
+    return points;
+  }, [series, symbol]);
 
   // Determine line color based on overall trend
   const firstPrice = data[0]?.price || 0;
@@ -30,7 +39,7 @@ export const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
         </div>
       ) : (
         <ResponsiveContainer width="100%" height={300}>
-          <LineChart data={chartData}>
+          <LineChart data={data}>
             <CartesianGrid strokeDasharray="3 3" stroke="#e5e7eb" />
             <XAxis 
               dataKey="time" 
@@ -63,6 +72,7 @@ export const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
               strokeWidth={2}
               dot={false}
               activeDot={{ r: 6 }}
+              isAnimationActive={false}
               name={`${symbol} Price`}
             />
           </LineChart>
@@ -74,4 +84,4 @@ export const StockChart: React.FC<StockChartProps> = ({ data, symbol }) => {
       </div>
     </div>
   );
-};
+});
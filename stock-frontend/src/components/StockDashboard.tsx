@@ -1,85 +1,25 @@
 import React, { useState, useEffect } from 'react';
-import { StockPrice } from '../types/stock';
-import { stockService } from '../services/stockService';
+import { useStockStream } from '../hooks/useStockStream';
 import { StockCard } from './StockCard';
 import { StockChart } from './StockChart';
 
 export const StockDashboard: React.FC = () => {
-  const [stocks, setStocks] = useState<Record<string, StockPrice>>({});
-  const [history, setHistory] = useState<Record<string, StockPrice[]>>({});
   const [selectedSymbol, setSelectedSymbol] = useState<string>('AAPL');
-  const [connectionStatus, setConnectionStatus] = useState<'connecting' | 'connected' | 'disconnected'>('connecting');
-  const [totalMessages, setTotalMessages] = useState<number>(0);
 
   const MAX_HISTORY_POINTS = 50;
 
-  useEffect(() => {
-    // Fetch initial data
-    const fetchInitialData = async () => {
-      try {
-        const currentPrices = await stockService.getCurrentPrices();
-        setStocks(currentPrices);
-        
-        // Fetch history for each symbol
-        const symbols = Object.keys(currentPrices);
-        for (const symbol of symbols) {
-          const symbolHistory = await stockService.getHistory(symbol, MAX_HISTORY_POINTS);
-          setHistory(prev => ({ ...prev, [symbol]: symbolHistory }));
-        }
-        
-        // Set default selected symbol if available
-        if (symbols.length > 0 && !stocks[selectedSymbol]) {
-          setSelectedSymbol(symbols[0]);
-        }
-      } catch (error) {
-        console.error('Error fetching initial data:', error);
-      }
-    };
-
-    fetchInitialData();
-
-    // Connect to SSE stream
-    stockService.connectToStream(
-      (stockPrice) => {
-        // Update current prices
-        setStocks(prev => ({
-          ...prev,
-          [stockPrice.symbol]: stockPrice
-        }));
+  // Parsing and buffering happen in a Web Worker; state changes at most once per frame
+  const { stocks, series, totalMessages, connectionStatus } = useStockStream(selectedSymbol, MAX_HISTORY_POINTS);
 
-        // Update history
-        setHistory(prev => {
-          const symbolHistory = prev[stockPrice.symbol] || [];
-          const updatedHistory = [...symbolHistory, stockPrice];
-          
-          // Keep only last MAX_HISTORY_POINTS
-          if (updatedHistory.length > MAX_HISTORY_POINTS) {
-            updatedHistory.shift();
-          }
-          
-          return {
-            ...prev,
-            [stockPrice.symbol]: updatedHistory
-          };
-        });
-
-        setTotalMessages(prev => prev + 1);
-        setConnectionStatus('connected');
-      },
-      (error) => {
-        console.error('SSE Error:', error);
-        setConnectionStatus('disconnected');
-      }
-    );
-
-    // Cleanup on unmount
-    return () => {
-      stockService.disconnect();
-    };
-  }, []);
+  // Set default selected symbol if available
+  useEffect(() => {
+    const symbols = Object.keys(stocks);
+    if (symbols.length > 0 && !stocks[selectedSymbol]) {
+      setSelectedSymbol(symbols.sort()[0]);
+    }
+  }, [stocks, selectedSymbol]);
 
   const stockList = Object.values(stocks).sort((a, b) => a.symbol.localeCompare(b.symbol));
-  const chartData = history[selectedSymbol] || [];
 
   return (
     <div className="min-h-screen bg-gradient-to-br from-blue-50 to-indigo-100">
@@ -153,7 +93,7 @@ export const StockDashboard: React.FC = () => {
               ))}
             </select>
           </div>
-          <StockChart data={chartData} symbol={selectedSymbol} />
+          <StockChart series={series} symbol={selectedSymbol} />
         </div>
 
         {/* Footer Info */}
@@ -166,7 +106,7 @@ export const StockDashboard: React.FC = () => {
             </div>
             <div>
               <p className="font-semibold text-gray-800 mb-1">Update Frequency</p>
-              <p>Real-time updates via Server-Sent Events (SSE)</p>
+              <p>Real-time updates via Server-Sent Events (SSE), parsed in a Web Worker</p>
             </div>
             <div>
               <p className="font-semibold text-gray-800 mb-1">Technology Stack</p>
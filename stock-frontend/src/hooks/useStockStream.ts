@@ -0,0 +1,71 @@
+import { useEffect, useRef, useState } from 'react';
+import { ConnectionStatus, PriceSeries, StockPrice, StreamCommand, StreamUpdate } from '../types/stock';
+
+/**
+ * Live prices from the stream worker, applied at most once per animation frame.
+ * Returns the latest price per symbol and the selected symbol's chart series.
+ */
+export function useStockStream(selectedSymbol: string, historyPoints: number) {
+  const [stocks, setStocks] = useState<Record<string, StockPrice>>({});
+  const [series, setSeries] = useState<PriceSeries | null>(null);
+  const [totalMessages, setTotalMessages] = useState<number>(0);
+  const [connectionStatus, setConnectionStatus] = useState<ConnectionStatus>('connecting');
+  const workerRef = useRef<Worker | null>(null);
+
+  useEffect(() => {
+    const worker = new Worker(new URL('../services/stockStream.worker.ts', import.meta.url), { type: 'module' });
+    const send = (command: StreamCommand) => worker.postMessage(command);
+    workerRef.current = worker;
+
+    let pending: StreamUpdate | null = null;
+    let frame = 0;
+
+    const apply = () => {
+      frame = 0;
+      const update = pending;
+      pending = null;
+      if (!update) {
+        return;
+      }
+      if (update.prices.length > 0) {
+        setStocks((prev) => {
+          const next = { ...prev };
+          for (const stockPrice of update.prices) {
+            next[stockPrice.symbol] = stockPrice;
+          }
+          return next;
+        });
+      }
+      if (update.series) {
+        setSeries(update.series);
+      }
+      setTotalMessages(update.totalMessages);
+      setConnectionStatus(update.status);
+      send({ type: 'ack' });
+    };
+
+    worker.onmessage = (event: MessageEvent<StreamUpdate>) => {
+      pending = event.data;
+      if (!frame) {
+        frame = requestAnimationFrame(apply);
+      }
+    };
+
+    send({ type: 'start', historyPoints });
+
+    return () => {
+      if (frame) {
+        cancelAnimationFrame(frame);
+      }
+      send({ type: 'stop' });
+      worker.terminate();
+      workerRef.current = null;
+    };
+  }, [historyPoints]);
+
+  useEffect(() => {
+    workerRef.current?.postMessage({ type: 'select', symbol: selectedSymbol } satisfies StreamCommand);
+  }, [selectedSymbol, historyPoints]);
+
+  return { stocks, series, totalMessages, connectionStatus };
+}
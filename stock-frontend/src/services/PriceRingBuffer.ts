@@ -0,0 +1,46 @@
+import { PriceSeries } from '../types/stock';
+
+/**
+ * Fixed-size ring of (time, price) points backed by typed arrays: pushing never allocates,
+ * and once full the oldest point is overwritten
+ */
+export class PriceRingBuffer {
+  private readonly times: Float64Array;
+  private readonly prices: Float64Array;
+  private start = 0;
+  private count = 0;
+
+  constructor(private readonly capacity: number) {
+    this.times = new Float64Array(capacity);
+    this.prices = new Float64Array(capacity);
+  }
+
+  get length(): number {
+    return this.count;
+  }
+
+  push(time: number, price: number): void {
+    const index = (this.start + this.count) % this.capacity;
+    this.times[index] = time;
+    this.prices[index] = price;
+    if (this.count < this.capacity) {
+      this.count++;
+    } else {
+      this.start = (this.start + 1) % this.capacity;
+    }
+  }
+
+  /**
+   * Copy of the points, oldest first (the copies can be transferred to another thread)
+   */
+  snapshot(symbol: string): PriceSeries {
+    const times = new Float64Array(this.count);
+    const prices = new Float64Array(this.count);
+    const head = Math.min(this.count, this.capacity - this.start);
+    times.set(this.times.subarray(this.start, this.start + head));
+    times.set(this.times.subarray(0, this.count - head), head);
+    prices.set(this.prices.subarray(this.start, this.start + head));
+    prices.set(this.prices.subarray(0, this.count - head), head);
+    return { symbol, times, prices };
+  }
+}
@@ -7,6 +7,7 @@ export class StockService {
   private reconnectAttempts = 0;
   private maxReconnectAttempts = 5;
   private reconnectDelay = 2000;
+  private lastEventId: string | null = null;
 
   /**
    * Connect to SSE stream for real-time stock updates
@@ -16,12 +17,18 @@ export class StockService {
       this.eventSource.close();
     }
 
-    const url = `${API_BASE_URL}/api/stream/stocks`;
+    // Resume after the last event seen; the server replays what was missed
+    const url = this.lastEventId
+      ? `${API_BASE_URL}/api/stream/stocks?lastEventId=${encodeURIComponent(this.lastEventId)}`
+      : `${API_BASE_URL}/api/stream/stocks`;
     this.eventSource = new EventSource(url);
 
     this.eventSource.addEventListener('stock-price', (event) => {
       try {
         const stockPrice: StockPrice = JSON.parse(event.data);
+        if (event.lastEventId) {
+          this.lastEventId = event.lastEventId;
+        }
         onMessage(stockPrice);
         this.reconnectAttempts = 0; // Reset on successful message
       } catch (error) {
@@ -95,10 +102,16 @@ export class StockService {
 
   /**
    * Get historical data for symbol (from in-memory storage)
-   * Fast but limited to last 1000 messages
+   * With maxPoints, the last `limit` ticks are downsampled on the server for charting
    */
-  async getHistory(symbol: string, limit: number = 100): Promise<StockPrice[]> {
-    const response = await fetch(`${API_BASE_URL}/api/stock/history/${symbol}?limit=${limit}`);
+  async getHistory(
+    symbol: string,
+    limit: number = 100,
+    maxPoints?: number,
+    mode: 'lttb' | 'minmax' = 'lttb'
+  ): Promise<StockPrice[]> {
+    const downsample = maxPoints ? `&maxPoints=${maxPoints}&mode=${mode}` : '';
+    const response = await fetch(`${API_BASE_URL}/api/stock/history/${symbol}?limit=${limit}${downsample}`);
     if (!response.ok) {
       throw new Error(`Failed to fetch history for ${symbol}`);
     }
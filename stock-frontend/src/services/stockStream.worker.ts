@@ -0,0 +1,125 @@
+import { stockService } from './stockService';
+import { PriceRingBuffer } from './PriceRingBuffer';
+import { ConnectionStatus, StockPrice, StreamCommand, StreamUpdate } from '../types/stock';
+
+/**
+ * Web Worker that owns the SSE connection: parses every tick, keeps the latest price and a
+ * ring buffer of recent points per symbol, and posts coalesced updates to the UI.
+ * At most one update is in flight; the UI acks after applying it in an animation frame,
+ * so updates follow the display's frame rate whatever the feed rate.
+ */
+const worker = self as unknown as Worker;
+
+let historyPoints = 50;
+const latest = new Map<string, StockPrice>();
+const buffers = new Map<string, PriceRingBuffer>();
+const changed = new Set<string>();
+let selected: string | null = null;
+let seriesChanged = false;
+let totalMessages = 0;
+let status: ConnectionStatus = 'connecting';
+let statusChanged = true;
+let awaitingAck = false;
+
+function bufferFor(symbol: string): PriceRingBuffer {
+  let buffer = buffers.get(symbol);
+  if (!buffer) {
+    buffer = new PriceRingBuffer(historyPoints);
+    buffers.set(symbol, buffer);
+  }
+  return buffer;
+}
+
+function setStatus(next: ConnectionStatus): void {
+  if (status !== next) {
+    status = next;
+    statusChanged = true;
+  }
+}
+
+function addPrice(stockPrice: StockPrice, appendToSeries: boolean): void {
+  latest.set(stockPrice.symbol, stockPrice);
+  changed.add(stockPrice.symbol);
+  if (appendToSeries) {
+    bufferFor(stockPrice.symbol).push(Date.parse(stockPrice.timestamp), stockPrice.price);
+    if (stockPrice.symbol === selected) {
+      seriesChanged = true;
+    }
+  }
+}
+
+/**
+ * Post what changed since the last update, unless the UI has not applied that one yet
+ */
+function flush(): void {
+  if (awaitingAck || (changed.size === 0 && !seriesChanged && !statusChanged)) {
+    return;
+  }
+  const update: StreamUpdate = {
+    type: 'update',
+    prices: Array.from(changed, (symbol) => latest.get(symbol)!),
+    totalMessages,
+    status,
+  };
+  const transfer: Transferable[] = [];
+  if (seriesChanged && selected) {
+    const series = bufferFor(selected).snapshot(selected);
+    update.series = series;
+    transfer.push(series.times.buffer, series.prices.buffer);
+  }
+  changed.clear();
+  seriesChanged = false;
+  statusChanged = false;
+  awaitingAck = true;
+  worker.postMessage(update, transfer);
+}
+
+async function start(): Promise<void> {
+  try {
+    const currentPrices = await stockService.getCurrentPrices();
+    const symbols = Object.keys(currentPrices);
+    const histories = await Promise.all(symbols.map((symbol) => stockService.getHistory(symbol, historyPoints)));
+    histories.forEach((symbolHistory) => symbolHistory.forEach((stockPrice) => addPrice(stockPrice, true)));
+    // Current prices last: they are never older than the history
+    symbols.forEach((symbol) => addPrice(currentPrices[symbol], false));
+    flush();
+  } catch (error) {
+    console.error('Error fetching initial data:', error);
+  }
+
+  stockService.connectToStream(
+    (stockPrice) => {
+      addPrice(stockPrice, true);
+      totalMessages++;
+      setStatus('connected');
+      flush();
+    },
+    (error) => {
+      console.error('SSE Error:', error);
+      setStatus('disconnected');
+      flush();
+    }
+  );
+}
+
+worker.onmessage = (event: MessageEvent<StreamCommand>) => {
+  const command = event.data;
+  switch (command.type) {
+    case 'start':
+      historyPoints = command.historyPoints;
+      start();
+      break;
+    case 'select':
+      selected = command.symbol;
+      seriesChanged = true;
+      flush();
+      break;
+    case 'ack':
+      awaitingAck = false;
+      flush();
+      break;
+    case 'stop':
+      stockService.disconnect();
+      break;
+  }
+};
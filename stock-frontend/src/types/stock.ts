@@ -3,7 +3,7 @@ export interface StockPrice {
   price: number;
   change: number;
   changePercent: number;
-  timestamp: string;
+  timestamp: string; // UTC, e.g. 2024-01-15T10:30:45Z (parsed by Date.parse / new Date)
 }
 
 export interface StockHistory {
@@ -19,3 +19,35 @@ export interface HealthStatus {
   symbols: string[];
   timestamp: string;
 }
+
+export type ConnectionStatus = 'connecting' | 'connected' | 'disconnected';
+
+/**
+ * Chart series for one symbol: epoch millis and prices, oldest first
+ */
+export interface PriceSeries {
+  symbol: string;
+  times: Float64Array;
+  prices: Float64Array;
+}
+
+/**
+ * Messages from the UI to the stream worker
+ */
+export type StreamCommand =
+  | { type: 'start'; historyPoints: number }
+  | { type: 'select'; symbol: string }
+  | { type: 'ack' }
+  | { type: 'stop' };
+
+/**
+ * Coalesced update from the stream worker: latest price of every symbol that ticked since
+ * the previous update, and the selected symbol's series when it changed
+ */
+export interface StreamUpdate {
+  type: 'update';
+  prices: StockPrice[];
+  totalMessages: number;
+  status: ConnectionStatus;
+  series?: PriceSeries;
+}
@@ -1,13 +1,16 @@
 package com.korshak.stockproducer;
 
+import com.korshak.stockproducer.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main Spring Boot Application for Stock Producer
  */
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 @EnableScheduling
 public class StockProducerApplication {
 
@@ -1,10 +1,14 @@
 package com.korshak.stockproducer.config;
 
+import com.korshak.stockproducer.partition.SymbolPartitionRouter;
+import com.korshak.stockproducer.partition.SymbolPartitioner;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -22,13 +26,31 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${stock.producer.topic}")
+    private String topicName;
+
+    @Value("${stock.producer.partitions}")
+    private int partitions;
+
+    @Bean
+    public NewTopic stockPricesTopic() {
+        return TopicBuilder.name(topicName)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> producerFactory(SymbolPartitionRouter symbolPartitionRouter) {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         
+        // Symbol-aware partitioning (keeps every symbol on one partition, balances hot symbols)
+        configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, SymbolPartitioner.class);
+        configProps.put(SymbolPartitioner.ROUTER_CONFIG, symbolPartitionRouter);
+        
         // Producer optimization settings
         configProps.put(ProducerConfig.ACKS_CONFIG, "1"); // Wait for leader acknowledgment
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
@@ -40,7 +62,7 @@ public class KafkaProducerConfig {
     }
 
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
     }
 }
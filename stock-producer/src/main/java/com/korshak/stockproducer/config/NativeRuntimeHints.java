@@ -0,0 +1,29 @@
+package com.korshak.stockproducer.config;
+
+import com.korshak.stockproducer.model.StockPrice;
+import com.korshak.stockproducer.partition.SymbolPartitioner;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Reflection hints for the GraalVM native image (mvn -Pnative native:compile).
+ * The Kafka producer instantiates its configured serializer and partitioner classes
+ * reflectively, and StockPrice is serialized by Jackson outside any controller signature.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingHints.registerReflectionHints(hints.reflection(), StockPrice.class);
+
+        hints.reflection().registerType(StringSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(JsonSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.reflection().registerType(SymbolPartitioner.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -1,5 +1,6 @@
 package com.korshak.stockproducer.controller;
 
+import com.korshak.stockproducer.partition.SymbolPartitionRouter;
 import com.korshak.stockproducer.service.StockPriceGeneratorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +20,9 @@ public class ProducerController {
 
     @Autowired
     private StockPriceGeneratorService stockPriceGeneratorService;
+
+    @Autowired
+    private SymbolPartitionRouter symbolPartitionRouter;
     
     /**
      * Health check endpoint
@@ -39,7 +43,15 @@ public class ProducerController {
     public ResponseEntity<Map<String, Object>> getCurrentPrice() {
         Map<String, Object> response = new HashMap<>();
         response.put("currentPrice", stockPriceGeneratorService.getCurrentPrice());
-        response.put("timestamp", java.time.LocalDateTime.now());
+        response.put("timestamp", java.time.Instant.now());
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Get symbol-to-partition assignment and partition skew
+     */
+    @GetMapping("/partitions")
+    public ResponseEntity<Map<String, Object>> getPartitionStats() {
+        return ResponseEntity.ok(symbolPartitionRouter.getStatistics());
+    }
 }
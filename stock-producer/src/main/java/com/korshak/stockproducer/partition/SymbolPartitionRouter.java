@@ -0,0 +1,305 @@
+package com.korshak.stockproducer.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the symbol -> partition assignment used by {@link SymbolPartitioner}.
+ *
+ * Every symbol is sticky to a single partition, so per-symbol ordering is kept
+ * between moves. Symbols can be pinned through configuration; the rest are placed
+ * on the least loaded partition (by observed message rate) the first time they are
+ * seen and are only moved by an explicit rebalance, which the caller applies after
+ * flushing the producer so nothing for a moved symbol is still in flight on its old
+ * partition. Consumers can still read the two partitions out of step, so across a
+ * move they must drop ticks older than the symbol's latest one.
+ */
+@Component
+public class SymbolPartitionRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SymbolPartitionRouter.class);
+    private static final double RATE_SMOOTHING = 0.5; // EWMA weight of the latest sample
+
+    private final Map<String, Integer> pinnedAssignments;
+    private final double skewThreshold;
+    private final int maxMovesPerRebalance;
+
+    // Symbol -> partition for non-pinned symbols
+    private final Map<String, Integer> assignments = new ConcurrentHashMap<>();
+
+    // Messages sent since the last rate sample, and smoothed rates (msg/sec)
+    private final Map<String, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+    private final Map<String, Double> symbolRates = new ConcurrentHashMap<>();
+
+    // Total messages routed per partition
+    private final Map<Integer, LongAdder> partitionCounts = new ConcurrentHashMap<>();
+
+    private volatile int partitionCount;
+    private long lastSampleNanos = System.nanoTime();
+
+    public SymbolPartitionRouter(
+            @Value("${stock.producer.partitioner.symbol-map:}") String symbolMap,
+            @Value("${stock.producer.partitioner.skew-threshold:1.25}") double skewThreshold,
+            @Value("${stock.producer.partitioner.max-moves:2}") int maxMovesPerRebalance) {
+        this.pinnedAssignments = parseSymbolMap(symbolMap);
+        this.skewThreshold = skewThreshold;
+        this.maxMovesPerRebalance = maxMovesPerRebalance;
+        if (!pinnedAssignments.isEmpty()) {
+            logger.info("Pinned symbol partitions: {}", pinnedAssignments);
+        }
+    }
+
+    /**
+     * Resolve the partition for a symbol (called by the partitioner for every record)
+     */
+    public int partitionFor(String symbol, int numPartitions) {
+        partitionCount = numPartitions;
+        pendingCounts.computeIfAbsent(symbol, k -> new LongAdder()).increment();
+
+        int partition = resolvePartition(symbol, numPartitions);
+        partitionCounts.computeIfAbsent(partition, k -> new LongAdder()).increment();
+        return partition;
+    }
+
+    private int resolvePartition(String symbol, int numPartitions) {
+        Integer pinned = pinnedAssignments.get(symbol);
+        if (pinned != null) {
+            if (pinned >= numPartitions) {
+                throw new IllegalStateException("Symbol " + symbol + " is pinned to partition " + pinned
+                        + " but the topic has " + numPartitions + " partitions");
+            }
+            return pinned;
+        }
+
+        Integer assigned = assignments.get(symbol);
+        if (assigned == null) {
+            synchronized (this) {
+                assigned = assignments.get(symbol);
+                if (assigned == null) {
+                    assigned = placementPartition(numPartitions);
+                    assignments.put(symbol, assigned);
+                    logger.info("Assigned symbol {} to partition {}", symbol, assigned);
+                }
+            }
+        }
+        return assigned % numPartitions;
+    }
+
+    /**
+     * Refresh rate estimates and compute the symbol moves needed to bring partition
+     * skew (max load / mean load) back under the threshold. Nothing is applied here.
+     */
+    public synchronized Map<String, Integer> planRebalance() {
+        sampleRates();
+
+        int numPartitions = partitionCount;
+        if (numPartitions < 2) {
+            return Collections.emptyMap();
+        }
+
+        double[] loads = partitionLoads(numPartitions);
+        Map<String, Integer> simulated = new HashMap<>(assignments);
+        Map<String, Integer> moves = new LinkedHashMap<>();
+
+        while (moves.size() < maxMovesPerRebalance && skew(loads) > skewThreshold) {
+            int hottest = mostLoadedPartition(loads);
+            int coolest = leastLoadedPartition(loads);
+            double gap = loads[hottest] - loads[coolest];
+
+            // Pick the symbol whose rate best halves the gap between the two partitions
+            String candidate = null;
+            double bestDistance = Double.MAX_VALUE;
+            for (Map.Entry<String, Integer> entry : simulated.entrySet()) {
+                if (entry.getValue() % numPartitions != hottest) {
+                    continue;
+                }
+                double rate = symbolRates.getOrDefault(entry.getKey(), 0.0);
+                if (rate <= 0 || rate >= gap) {
+                    continue; // moving it would not lower the maximum
+                }
+                double distance = Math.abs(rate - gap / 2);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    candidate = entry.getKey();
+                }
+            }
+
+            if (candidate == null) {
+                break;
+            }
+
+            double rate = symbolRates.get(candidate);
+            loads[hottest] -= rate;
+            loads[coolest] += rate;
+            simulated.put(candidate, coolest);
+            moves.put(candidate, coolest);
+        }
+
+        return moves;
+    }
+
+    /**
+     * Apply moves returned by {@link #planRebalance()}; the caller must flush the producer first
+     */
+    public synchronized void applyMoves(Map<String, Integer> moves) {
+        moves.forEach((symbol, partition) -> {
+            Integer previous = assignments.put(symbol, partition);
+            logger.info("Moved symbol {} from partition {} to partition {}", symbol, previous, partition);
+        });
+    }
+
+    /**
+     * Partition assignment and skew statistics
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        int numPartitions = partitionCount;
+        double[] loads = partitionLoads(numPartitions);
+
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (int partition = 0; partition < numPartitions; partition++) {
+            List<String> symbols = new ArrayList<>();
+            for (String symbol : pendingCounts.keySet()) {
+                if (currentPartition(symbol, numPartitions) == partition) {
+                    symbols.add(symbol);
+                }
+            }
+            Collections.sort(symbols);
+
+            LongAdder count = partitionCounts.get(partition);
+            Map<String, Object> partitionStats = new HashMap<>();
+            partitionStats.put("partition", partition);
+            partitionStats.put("messages", count != null ? count.sum() : 0L);
+            partitionStats.put("ratePerSecond", loads[partition]);
+            partitionStats.put("symbols", symbols);
+            partitions.add(partitionStats);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("partitionCount", numPartitions);
+        stats.put("skew", skew(loads));
+        stats.put("skewThreshold", skewThreshold);
+        stats.put("partitions", partitions);
+        stats.put("symbolRates", new TreeMap<>(symbolRates));
+        stats.put("pinnedAssignments", new TreeMap<>(pinnedAssignments));
+        stats.put("assignments", new TreeMap<>(assignments));
+        return stats;
+    }
+
+    private void sampleRates() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastSampleNanos) / 1_000_000_000.0;
+        lastSampleNanos = now;
+        if (elapsedSeconds <= 0) {
+            return;
+        }
+
+        pendingCounts.forEach((symbol, counter) -> {
+            double sample = counter.sumThenReset() / elapsedSeconds;
+            symbolRates.merge(symbol, sample,
+                    (previous, latest) -> RATE_SMOOTHING * latest + (1 - RATE_SMOOTHING) * previous);
+        });
+    }
+
+    private double[] partitionLoads(int numPartitions) {
+        double[] loads = new double[Math.max(numPartitions, 0)];
+        if (numPartitions == 0) {
+            return loads;
+        }
+        symbolRates.forEach((symbol, rate) -> {
+            int partition = currentPartition(symbol, numPartitions);
+            if (partition >= 0) {
+                loads[partition] += rate;
+            }
+        });
+        return loads;
+    }
+
+    /**
+     * Least loaded partition by rate; ties (e.g. before the first rate sample) go to
+     * the partition holding the fewest symbols
+     */
+    private int placementPartition(int numPartitions) {
+        double[] loads = partitionLoads(numPartitions);
+        int[] symbolCounts = new int[numPartitions];
+        pinnedAssignments.values().stream()
+                .filter(partition -> partition < numPartitions) // out-of-range pins fail on send
+                .forEach(partition -> symbolCounts[partition]++);
+        assignments.values().forEach(partition -> symbolCounts[partition % numPartitions]++);
+
+        int best = 0;
+        for (int i = 1; i < numPartitions; i++) {
+            if (loads[i] < loads[best] || (loads[i] == loads[best] && symbolCounts[i] < symbolCounts[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int currentPartition(String symbol, int numPartitions) {
+        Integer pinned = pinnedAssignments.get(symbol);
+        if (pinned != null) {
+            return pinned < numPartitions ? pinned : -1;
+        }
+        Integer assigned = assignments.get(symbol);
+        return assigned != null ? assigned % numPartitions : -1;
+    }
+
+    private static int leastLoadedPartition(double[] loads) {
+        int best = 0;
+        for (int i = 1; i < loads.length; i++) {
+            if (loads[i] < loads[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int mostLoadedPartition(double[] loads) {
+        int best = 0;
+        for (int i = 1; i < loads.length; i++) {
+            if (loads[i] > loads[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double skew(double[] loads) {
+        if (loads.length == 0) {
+            return 1.0;
+        }
+        double total = 0;
+        double max = 0;
+        for (double load : loads) {
+            total += load;
+            max = Math.max(max, load);
+        }
+        double mean = total / loads.length;
+        return mean > 0 ? max / mean : 1.0;
+    }
+
+    private static Map<String, Integer> parseSymbolMap(String symbolMap) {
+        Map<String, Integer> result = new HashMap<>();
+        if (symbolMap == null || symbolMap.isBlank()) {
+            return result;
+        }
+        for (String entry : symbolMap.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid symbol partition mapping: " + entry);
+            }
+            int partition = Integer.parseInt(parts[1].trim());
+            if (partition < 0) {
+                throw new IllegalArgumentException("Negative partition in symbol partition mapping: " + entry);
+            }
+            result.put(parts[0].trim().toUpperCase(), partition);
+        }
+        return result;
+    }
+}
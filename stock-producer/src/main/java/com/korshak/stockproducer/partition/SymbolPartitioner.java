@@ -0,0 +1,48 @@
+package com.korshak.stockproducer.partition;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.config.ConfigException;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Kafka partitioner that routes records by symbol key through {@link SymbolPartitionRouter}
+ * instead of hashing, so hot symbols can be spread across partitions.
+ * The router instance is handed over through the producer config map.
+ */
+public class SymbolPartitioner implements Partitioner {
+
+    /**
+     * Producer config key carrying the router instance. Kafka only warns about supplied keys
+     * that nothing read ("supplied but isn't a known config"); configure() reads this one from
+     * the producer's recording config map, which marks it as used, so no warning is logged.
+     */
+    public static final String ROUTER_CONFIG = "stock.symbol.partition.router";
+
+    private SymbolPartitionRouter router;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(ROUTER_CONFIG);
+        if (!(configured instanceof SymbolPartitionRouter)) {
+            throw new ConfigException(ROUTER_CONFIG, configured, "Expected a SymbolPartitionRouter instance");
+        }
+        this.router = (SymbolPartitionRouter) configured;
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (key == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        return router.partitionFor(key.toString(), numPartitions);
+    }
+
+    @Override
+    public void close() {
+        // Router lifecycle is managed by Spring
+    }
+}
@@ -1,6 +1,7 @@
 package com.korshak.stockproducer.service;
 
 import com.korshak.stockproducer.model.StockPrice;
+import com.korshak.stockproducer.partition.SymbolPartitionRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,8 +10,11 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Stock Price Generator Service that produces fake stock prices
@@ -22,6 +26,7 @@ public class StockPriceGeneratorService {
     private static final Logger logger = LoggerFactory.getLogger(StockPriceGeneratorService.class);
     
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final SymbolPartitionRouter partitionRouter;
     private final Random random = new Random();
     
     // Configuration properties
@@ -34,13 +39,22 @@ public class StockPriceGeneratorService {
     @Value("${stock.producer.max-change}")
     private double maxChange;
     
+    @Value("${stock.producer.partitioner.auto-balance}")
+    private boolean autoBalance;
+    
     // Current stock states
     private final AtomicReference<Double> currentPrice = new AtomicReference<>();
     private final String[] symbols = {"AAPL", "GOOGL", "MSFT", "AMZN", "TSLA"};
     private int currentSymbolIndex = 0;
     
-    public StockPriceGeneratorService(KafkaTemplate<String, Object> kafkaTemplate) {
+    // Scheduled runs may overlap when @Scheduled runs on virtual threads; generation and
+    // partition moves must not interleave (a ReentrantLock does not pin the carrier thread)
+    private final ReentrantLock sendLock = new ReentrantLock();
+    
+    public StockPriceGeneratorService(KafkaTemplate<String, Object> kafkaTemplate,
+                                      SymbolPartitionRouter partitionRouter) {
         this.kafkaTemplate = kafkaTemplate;
+        this.partitionRouter = partitionRouter;
     }
     
     /**
@@ -58,6 +72,15 @@ public class StockPriceGeneratorService {
      */
     @Scheduled(fixedRateString = "${stock.producer.interval}")
     public void generateAndSendStockPrice() {
+        sendLock.lock();
+        try {
+            generateStockPrice();
+        } finally {
+            sendLock.unlock();
+        }
+    }
+    
+    private void generateStockPrice() {
         initializePrice();
         
         // Get current symbol (rotate through symbols)
@@ -81,7 +104,7 @@ public class StockPriceGeneratorService {
             Math.round(newPrice * 100.0) / 100.0, // Round to 2 decimal places
             Math.round(changeAmount * 100.0) / 100.0,
             Math.round(changePercent * 100.0) / 100.0,
-            LocalDateTime.now()
+            LocalDateTime.now(ZoneOffset.UTC) // consumers read tick timestamps as UTC
         );
 
       sendToKafka(symbol, stockPrice);
@@ -103,6 +126,29 @@ public class StockPriceGeneratorService {
     }
   }
 
+    /**
+     * Periodically move hot symbols off overloaded partitions.
+     * The producer is flushed before the new assignment is applied, so every record
+     * already sent for a moved symbol is on its old partition before the next one
+     * goes to the new partition.
+     */
+    @Scheduled(fixedRateString = "${stock.producer.partitioner.rebalance-interval}")
+    public void rebalancePartitions() {
+        Map<String, Integer> moves = partitionRouter.planRebalance();
+        if (!autoBalance || moves.isEmpty()) {
+            return;
+        }
+
+        sendLock.lock();
+        try {
+            kafkaTemplate.flush();
+            partitionRouter.applyMoves(moves);
+        } finally {
+            sendLock.unlock();
+        }
+        logger.info("Rebalanced symbol partitions: {}", moves);
+    }
+
   /**
      * Get current price for monitoring
      */
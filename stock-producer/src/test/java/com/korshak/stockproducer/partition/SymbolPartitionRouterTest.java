@@ -0,0 +1,131 @@
+package com.korshak.stockproducer.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SymbolPartitionRouterTest {
+
+    @Test
+    void pinnedSymbolsUseTheirPartition() {
+        SymbolPartitionRouter router = router(" aapl : 2 ,TSLA:5");
+
+        assertThat(router.partitionFor("AAPL", 6)).isEqualTo(2);
+        assertThat(router.partitionFor("TSLA", 6)).isEqualTo(5);
+    }
+
+    @Test
+    void pinBeyondThePartitionCountFails() {
+        SymbolPartitionRouter router = router("TSLA:7");
+
+        assertThatThrownBy(() -> router.partitionFor("TSLA", 6)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("partition 7");
+        // Other symbols are still placed, and statistics skip the bad pin
+        assertThat(router.partitionFor("AAPL", 6)).isBetween(0, 5);
+        assertThat(router.getStatistics()).containsEntry("partitionCount", 6);
+    }
+
+    @Test
+    void rejectsInvalidSymbolMaps() {
+        assertThatThrownBy(() -> router("AAPL:-1")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Negative partition");
+        assertThatThrownBy(() -> router("AAPL")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router("AAPL:1:2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router("AAPL:x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void newSymbolsSpreadOverPartitionsAndStay() {
+        SymbolPartitionRouter router = router("AAPL:0");
+        Map<String, Integer> placed = new HashMap<>();
+        for (String symbol : new String[] {"MSFT", "GOOGL", "AMZN", "TSLA", "META"}) {
+            placed.put(symbol, router.partitionFor(symbol, 3));
+        }
+
+        // Before any rate sample, the partition with the fewest symbols (pinned ones included) wins
+        assertThat(placed.values()).containsOnly(0, 1, 2);
+        assertThat(placed.values().stream().filter(partition -> partition == 0)).hasSize(1);
+        for (Map.Entry<String, Integer> entry : placed.entrySet()) {
+            assertThat(router.partitionFor(entry.getKey(), 3)).isEqualTo(entry.getValue());
+        }
+    }
+
+    @Test
+    void rebalanceMovesAHotSymbolOffTheHottestPartition() {
+        SymbolPartitionRouter router = router("");
+        String[] symbols = {"A", "B", "C", "D"};
+        for (String symbol : symbols) {
+            router.partitionFor(symbol, 2);
+        }
+        int hot = router.partitionFor("A", 2);
+        String hotPeer = router.partitionFor("C", 2) == hot ? "C" : "B";
+        send(router, "A", 1000);
+        send(router, hotPeer, 1000);
+
+        Map<String, Integer> moves = router.planRebalance();
+
+        assertThat(moves).hasSize(1);
+        String moved = moves.keySet().iterator().next();
+        assertThat(moved).isIn("A", hotPeer);
+        assertThat(moves.get(moved)).isEqualTo(1 - hot);
+        // Nothing changes until the moves are applied
+        assertThat(router.partitionFor(moved, 2)).isEqualTo(hot);
+
+        router.applyMoves(moves);
+        assertThat(router.partitionFor(moved, 2)).isEqualTo(1 - hot);
+    }
+
+    @Test
+    void balancedOrPinnedLoadIsNotMoved() {
+        SymbolPartitionRouter balanced = router("");
+        send(balanced, "A", 1000);
+        send(balanced, "B", 1000);
+        assertThat(balanced.planRebalance()).isEmpty();
+
+        SymbolPartitionRouter pinned = router("A:0,B:0");
+        send(pinned, "A", 1000);
+        send(pinned, "B", 1000);
+        send(pinned, "C", 10);
+        assertThat(pinned.planRebalance()).isEmpty();
+    }
+
+    @Test
+    void rebalanceHonorsTheMoveLimit() {
+        SymbolPartitionRouter router = new SymbolPartitionRouter("", 1.25, 0);
+        router.partitionFor("A", 2);
+        router.partitionFor("B", 2);
+        router.partitionFor("C", 2);
+        send(router, "A", 1000);
+        send(router, "C", 1000);
+
+        assertThat(router.planRebalance()).isEmpty();
+    }
+
+    @Test
+    void singlePartitionIsNeverRebalanced() {
+        SymbolPartitionRouter router = router("");
+        send(router, "A", 1000, 1);
+        send(router, "B", 1, 1);
+
+        assertThat(router.planRebalance()).isEmpty();
+        assertThat(router.partitionFor("B", 1)).isZero();
+    }
+
+    private static SymbolPartitionRouter router(String symbolMap) {
+        return new SymbolPartitionRouter(symbolMap, 1.25, 2);
+    }
+
+    private static void send(SymbolPartitionRouter router, String symbol, int messages) {
+        send(router, symbol, messages, 2);
+    }
+
+    private static void send(SymbolPartitionRouter router, String symbol, int messages, int numPartitions) {
+        for (int i = 0; i < messages; i++) {
+            router.partitionFor(symbol, numPartitions);
+        }
+    }
+}